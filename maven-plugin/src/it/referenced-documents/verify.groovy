@@ -0,0 +1,11 @@
+def log = new File(basedir, 'build.log').text
+def generated = log.readLines().findAll { it.contains('[INFO] Generated ') && it.endsWith('slate.md') }
+assert generated.size() == 2 : "expected the first and the last execution to generate the document: ${generated}"
+assert log.contains('slate.md is up to date')
+
+def document = new File(basedir, 'api/target/slate/slate.md').text
+assert document.contains('changedName')
+assert !document.contains('originalName')
+
+def leftovers = new File(basedir, 'api/target/slate').list().findAll { it.endsWith('.tmp') }
+assert leftovers.isEmpty() : "expected the rendered documents to be moved in place: ${leftovers}"
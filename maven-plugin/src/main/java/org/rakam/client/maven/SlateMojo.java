@@ -0,0 +1,235 @@
+package org.rakam.client.maven;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableList;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import io.swagger.codegen.config.CodegenConfigurator;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.rakam.client.builder.document.SlateDocumentGenerator;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static java.lang.String.format;
+
+/**
+ * Generates the Slate document of a spec inside the Maven JVM.
+ *
+ * The hash of the inputs (the spec, the documents it references, the config files, the options and the swagger-slate
+ * jar) is stored next to the document with the locations of the referenced documents, and generation is skipped when
+ * it's unchanged. Remote specs and specs that reference remote documents are always generated. Generators are kept
+ * for the lifetime of the plugin class loader, so modules with the same languages and options share one.
+ */
+@Mojo(name = "generate", defaultPhase = LifecyclePhase.GENERATE_RESOURCES, threadSafe = true)
+public class SlateMojo
+        extends AbstractMojo
+{
+    private static final String DOCUMENT = "slate.md";
+    private static final String INPUTS = ".slate-inputs";
+    private static final Map<String, SlateDocumentGenerator> generators = new ConcurrentHashMap<>();
+
+    /**
+     * Location of the swagger spec, as URL or file. Relative files are resolved against the base directory of the
+     * project.
+     */
+    @Parameter(property = "swagger-slate.inputSpec", required = true)
+    private String inputSpec;
+
+    @Parameter(defaultValue = "${project.basedir}", readonly = true, required = true)
+    private File basedir;
+
+    /**
+     * Client languages to render the examples in.
+     */
+    @Parameter(required = true)
+    private List<String> languages;
+
+    @Parameter(property = "swagger-slate.outputDirectory", defaultValue = "${project.build.directory}/slate")
+    private File outputDirectory;
+
+    /**
+     * Codegen config files by language, in the format of the {@code -c} option of the command line.
+     */
+    @Parameter
+    private Map<String, File> configFiles = Collections.emptyMap();
+
+    @Parameter
+    private String apiPackage;
+
+    @Parameter
+    private String modelPackage;
+
+    @Parameter
+    private Map<String, String> systemProperties = Collections.emptyMap();
+
+    /**
+     * Authorization for remote specs, in the format of the {@code -a} option of swagger-codegen.
+     */
+    @Parameter
+    private String auth;
+
+    @Parameter(property = "swagger-slate.skip", defaultValue = "false")
+    private boolean skip;
+
+    @Override
+    public void execute()
+            throws MojoExecutionException
+    {
+        if (skip) {
+            getLog().info("Skipping swagger-slate");
+            return;
+        }
+
+        String spec = resolveSpec();
+        try {
+            File specFile = new File(spec);
+            File document = new File(outputDirectory, DOCUMENT);
+            File inputs = new File(outputDirectory, INPUTS);
+
+            if (specFile.isFile() && document.isFile() && inputs.isFile() && isUpToDate(specFile, inputs)) {
+                getLog().info(format("%s is up to date", document));
+                return;
+            }
+
+            SlateDocumentGenerator generator = generators.computeIfAbsent(generatorKey(), key -> createGenerator());
+            outputDirectory.mkdirs();
+            // the old hash must not outlive the old document, and a failed render must not replace it
+            Files.deleteIfExists(inputs.toPath());
+            Map<String, String> documents = new TreeMap<>();
+            Path rendered = Files.createTempFile(outputDirectory.toPath(), DOCUMENT, ".tmp");
+            try {
+                try (Writer writer = Files.newBufferedWriter(rendered, StandardCharsets.UTF_8)) {
+                    generator.render(SlateDocumentGenerator.readSwagger(spec, auth, documents), writer);
+                }
+                Files.move(rendered, document.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+            finally {
+                Files.deleteIfExists(rendered);
+            }
+            if (specFile.isFile() && documents.keySet().stream().allMatch(location -> new File(location).isFile())) {
+                List<String> lines = new ArrayList<>();
+                lines.add(hashInputs(specFile, documents));
+                lines.addAll(documents.keySet());
+                Files.write(inputs.toPath(), lines, StandardCharsets.UTF_8);
+            }
+            else {
+                Files.deleteIfExists(inputs.toPath());
+            }
+            getLog().info(format("Generated %s", document));
+        }
+        catch (IOException | IllegalArgumentException e) {
+            throw new MojoExecutionException(format("Unable to generate the document of %s", spec), e);
+        }
+    }
+
+    private String resolveSpec()
+    {
+        if (inputSpec.contains("://")) {
+            return inputSpec;
+        }
+        File specFile = new File(inputSpec);
+        return specFile.isAbsolute() ? inputSpec : new File(basedir, inputSpec).getPath();
+    }
+
+    /**
+     * Returns whether the hash of the current inputs matches the one stored with the referenced documents of the
+     * last generation.
+     */
+    private boolean isUpToDate(File specFile, File inputs)
+            throws IOException
+    {
+        List<String> lines = Files.readAllLines(inputs.toPath(), StandardCharsets.UTF_8);
+        if (lines.isEmpty()) {
+            return false;
+        }
+        Map<String, String> documents = new TreeMap<>();
+        for (String location : lines.subList(1, lines.size())) {
+            File file = new File(location);
+            if (!file.isFile()) {
+                return false;
+            }
+            // the same hash as the one the resolver returns for the document
+            String contents = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+            documents.put(location, Hashing.sha256().hashString(contents, StandardCharsets.UTF_8).toString());
+        }
+        return lines.get(0).equals(hashInputs(specFile, documents));
+    }
+
+    private SlateDocumentGenerator createGenerator()
+    {
+        ImmutableList.Builder<CodegenConfigurator> configurators = ImmutableList.builder();
+        for (String language : languages) {
+            File configFile = configFiles.get(language);
+            CodegenConfigurator configurator = configFile == null
+                    ? new CodegenConfigurator()
+                    : CodegenConfigurator.fromFile(configFile.getAbsolutePath());
+            if (configurator == null) {
+                throw new IllegalArgumentException(format("Unable to read config file %s", configFile));
+            }
+            configurator.setLang(language);
+            if (apiPackage != null) {
+                configurator.setApiPackage(apiPackage);
+            }
+            if (modelPackage != null) {
+                configurator.setModelPackage(modelPackage);
+            }
+            systemProperties.forEach(configurator::addSystemProperty);
+            configurators.add(configurator);
+        }
+        try {
+            return new SlateDocumentGenerator(configurators.build());
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    private String generatorKey()
+            throws IOException
+    {
+        Hasher hasher = Hashing.sha256().newHasher();
+        hasher.putString(Joiner.on(',').join(languages), StandardCharsets.UTF_8);
+        hasher.putString(String.valueOf(apiPackage), StandardCharsets.UTF_8);
+        hasher.putString(String.valueOf(modelPackage), StandardCharsets.UTF_8);
+        hasher.putString(new TreeMap<>(systemProperties).toString(), StandardCharsets.UTF_8);
+        for (String language : languages) {
+            File configFile = configFiles.get(language);
+            if (configFile != null) {
+                hasher.putBytes(Files.readAllBytes(configFile.toPath()));
+            }
+        }
+        return hasher.hash().toString();
+    }
+
+    /**
+     * @param documents the content hashes of the referenced documents by their location
+     */
+    private String hashInputs(File specFile, Map<String, String> documents)
+            throws IOException
+    {
+        Hasher hasher = Hashing.sha256().newHasher();
+        hasher.putString(generatorKey(), StandardCharsets.UTF_8);
+        hasher.putBytes(Files.readAllBytes(specFile.toPath()));
+        documents.forEach((location, hash) -> hasher.putString(location, StandardCharsets.UTF_8).putString(hash, StandardCharsets.UTF_8));
+        // the example templates are bundled in the swagger-slate jar
+        File jar = new File(SlateDocumentGenerator.class.getProtectionDomain().getCodeSource().getLocation().getPath());
+        hasher.putLong(jar.length()).putLong(jar.lastModified());
+        return hasher.hash().toString();
+    }
+}
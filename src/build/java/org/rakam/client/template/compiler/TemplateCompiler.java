@@ -0,0 +1,747 @@
+package org.rakam.client.template.compiler;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.hash.Hashing;
+import io.swagger.codegen.CodegenOperation;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static java.lang.String.format;
+
+/**
+ * Compiles the bundled example templates into Java classes that render them with typed field accesses, so the
+ * example usages are rendered without looking up the codegen data reflectively for every operation.
+ *
+ * The generated code reproduces the output of JMustache 1.9 as it's configured in
+ * {@code SlateDocumentGenerator}: names are looked up from the innermost section outwards, values are HTML escaped,
+ * missing values are rendered empty and the newline after a section tag that starts a line is skipped. The types of
+ * the names are resolved at build time from the bundle that {@code generateExampleUsages} passes to the templates.
+ * Templates that use anything else, such as partials, dotted names or names that can't be resolved statically, are
+ * not compiled and are rendered with JMustache at runtime.
+ *
+ * Usage: {@code TemplateCompiler <template directory> <output directory>}
+ */
+public class TemplateCompiler
+{
+    private static final String PACKAGE = "org.rakam.client.template";
+    private static final String TEMPLATE_SUFFIX = "_api_example.mustache";
+    private static final String INDEX_CLASS = "CompiledExampleRenderers";
+
+    private static final Schema STRING = new ClassSchema(String.class);
+    // the bundle of an operation, see SlateDocumentGenerator.generateExampleUsages
+    private static final Schema BUNDLE = new MapSchema(ImmutableMap.<String, Schema>builder()
+            .put("operations", new MapSchema(ImmutableMap.of(
+                    "classname", STRING,
+                    "pathPrefix", STRING,
+                    "operation", new ClassSchema(listOf(CodegenOperation.class)))))
+            .put("package", STRING)
+            .put("modelPackage", STRING)
+            .put("classname", STRING)
+            .put("hostname", STRING)
+            .put("hasImport", new ClassSchema(Boolean.class))
+            .build());
+
+    private final String className;
+    private final StringBuilder code = new StringBuilder();
+    private final Deque<Frame> frames = new ArrayDeque<>();
+    private int indent;
+    private int variables;
+
+    private TemplateCompiler(String className)
+    {
+        this.className = className;
+    }
+
+    public static void main(String[] args)
+            throws IOException
+    {
+        if (args.length != 2) {
+            throw new IllegalArgumentException("Usage: TemplateCompiler <template directory> <output directory>");
+        }
+        File templateDirectory = new File(args[0]);
+        File outputDirectory = new File(args[1], PACKAGE.replace('.', File.separatorChar));
+        Files.createDirectories(outputDirectory.toPath());
+
+        File[] templates = templateDirectory.listFiles((dir, name) -> name.endsWith(TEMPLATE_SUFFIX));
+        if (templates == null) {
+            throw new IllegalArgumentException(format("%s is not a directory", templateDirectory));
+        }
+        Arrays.sort(templates);
+
+        Map<String, String> renderers = new TreeMap<>();
+        for (File template : templates) {
+            String source = new String(Files.readAllBytes(template.toPath()), StandardCharsets.UTF_8);
+            String className = className(template.getName());
+            String code;
+            try {
+                code = new TemplateCompiler(className).compile(template.getName(), new Parser(source).parse());
+            }
+            catch (UnsupportedTemplateException e) {
+                System.out.println(format("[template-compiler] %s is rendered with JMustache: %s", template.getName(), e.getMessage()));
+                continue;
+            }
+            write(new File(outputDirectory, className + ".java"), code);
+            renderers.put(Hashing.sha256().hashString(source, StandardCharsets.UTF_8).toString(), className);
+        }
+        write(new File(outputDirectory, INDEX_CLASS + ".java"), index(renderers));
+    }
+
+    private static String className(String templateName)
+    {
+        StringBuilder name = new StringBuilder();
+        for (String part : templateName.substring(0, templateName.length() - ".mustache".length()).split("[^A-Za-z0-9]+")) {
+            if (!part.isEmpty()) {
+                name.append(Character.toUpperCase(part.charAt(0))).append(part.substring(1));
+            }
+        }
+        return name.append("Renderer").toString();
+    }
+
+    private static void write(File file, String code)
+            throws IOException
+    {
+        byte[] bytes = code.getBytes(StandardCharsets.UTF_8);
+        // keep the timestamp of unchanged files so that the compiler doesn't recompile them
+        if (!file.exists() || !Arrays.equals(Files.readAllBytes(file.toPath()), bytes)) {
+            Files.write(file.toPath(), bytes);
+        }
+    }
+
+    private static String index(Map<String, String> renderers)
+    {
+        StringBuilder code = new StringBuilder()
+                .append("// Generated by ").append(TemplateCompiler.class.getName()).append(", do not edit.\n")
+                .append("package ").append(PACKAGE).append(";\n\n")
+                .append("public final class ").append(INDEX_CLASS).append("\n{\n")
+                .append("    private ").append(INDEX_CLASS).append("()\n    {\n    }\n\n")
+                .append("    /**\n     * Returns the renderer compiled from the template with the given SHA-256, or null if it's not compiled.\n     */\n")
+                .append("    public static ExampleRenderer get(String templateHash)\n    {\n")
+                .append("        switch (templateHash) {\n");
+        renderers.forEach((hash, className) -> code
+                .append("            case \"").append(hash).append("\":\n")
+                .append("                return new ").append(className).append("();\n"));
+        return code.append("            default:\n                return null;\n        }\n    }\n}\n").toString();
+    }
+
+    private String compile(String templateName, List<Node> nodes)
+    {
+        code.append("// Generated from ").append(templateName).append(" by ").append(TemplateCompiler.class.getName()).append(", do not edit.\n")
+                .append("package ").append(PACKAGE).append(";\n\n")
+                .append("public final class ").append(className).append("\n        implements ExampleRenderer\n{\n")
+                .append("    @Override\n    @SuppressWarnings(\"unchecked\")\n")
+                .append("    public String render(java.util.Map<String, Object> bundle)\n    {\n");
+        indent = 2;
+        line("StringBuilder out = new StringBuilder();");
+        frames.push(new Frame(BUNDLE, "bundle"));
+        nodes(nodes);
+        line("return out.toString();");
+        code.append("    }\n}\n");
+        return code.toString();
+    }
+
+    private void nodes(List<Node> nodes)
+    {
+        for (Node node : nodes) {
+            if (node instanceof Text) {
+                line("out.append(" + literal(((Text) node).text) + ");");
+            }
+            else if (node instanceof Variable) {
+                Variable variable = (Variable) node;
+                Value value = resolve(variable.name);
+                line(format("out.append(ExampleRenderers.%s(%s));", variable.escaped ? "escape" : "format", value.expression));
+            }
+            else {
+                section((Section) node);
+            }
+        }
+    }
+
+    private void section(Section section)
+    {
+        Value value = resolve(section.name);
+        String variable = variable(section.name);
+        line(format("%s %s = %s;", value.schema.typeName(), variable, value.typedExpression));
+
+        if (value.schema.isBoolean()) {
+            line(format("if (%sBoolean.TRUE.equals(%s)) {", section.inverted ? "!" : "", variable));
+            block(section.nodes);
+        }
+        else if (value.schema.elementType() != null) {
+            if (section.inverted) {
+                line(format("if (%1$s == null || !%1$s.iterator().hasNext()) {", variable));
+                block(section.nodes);
+            }
+            else {
+                Schema element = schema(value.schema.elementType());
+                String item = variable(section.name);
+                line(format("if (%s != null) {", variable));
+                indent++;
+                line(format("for (%s %s : %s) {", element.typeName(), item, variable));
+                frames.push(new Frame(element, item));
+                block(section.nodes);
+                frames.pop();
+                indent--;
+                line("}");
+            }
+        }
+        else if (value.schema instanceof MapSchema || !((ClassSchema) value.schema).isScalar()) {
+            line(format("if (%s %s null) {", variable, section.inverted ? "==" : "!="));
+            if (!section.inverted) {
+                frames.push(new Frame(value.schema, variable));
+            }
+            block(section.nodes);
+            if (!section.inverted) {
+                frames.pop();
+            }
+        }
+        else {
+            throw new UnsupportedTemplateException(format("section '%s' of type %s", section.name, value.schema.typeName()));
+        }
+    }
+
+    private void block(List<Node> nodes)
+    {
+        indent++;
+        nodes(nodes);
+        indent--;
+        line("}");
+    }
+
+    /**
+     * Looks up a name from the innermost section outwards, the way JMustache does.
+     */
+    private Value resolve(String name)
+    {
+        if (name.equals(".") || name.equals("this")) {
+            Frame frame = frames.peek();
+            return new Value(frame.schema, frame.variable, frame.variable);
+        }
+        if (name.contains(".") || name.startsWith("-")) {
+            throw new UnsupportedTemplateException(format("name '%s'", name));
+        }
+        for (Frame frame : frames) {
+            Value value = frame.schema.member(name, frame.variable);
+            if (value != null) {
+                return value;
+            }
+        }
+        throw new UnsupportedTemplateException(format("name '%s' is not in the bundle", name));
+    }
+
+    private String variable(String name)
+    {
+        return name.replaceAll("[^A-Za-z0-9_]", "_") + (++variables);
+    }
+
+    private void line(String line)
+    {
+        for (int i = 0; i < indent; i++) {
+            code.append("    ");
+        }
+        code.append(line).append('\n');
+    }
+
+    private static String literal(String text)
+    {
+        StringBuilder literal = new StringBuilder("\"");
+        for (char c : text.toCharArray()) {
+            switch (c) {
+                case '"':
+                    literal.append("\\\"");
+                    break;
+                case '\\':
+                    literal.append("\\\\");
+                    break;
+                case '\n':
+                    literal.append("\\n");
+                    break;
+                case '\r':
+                    literal.append("\\r");
+                    break;
+                case '\t':
+                    literal.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20 || c > 0x7e) {
+                        literal.append(format("\\u%04x", (int) c));
+                    }
+                    else {
+                        literal.append(c);
+                    }
+            }
+        }
+        return literal.append('"').toString();
+    }
+
+    private static Type listOf(Class<?> element)
+    {
+        return new ParameterizedType()
+        {
+            @Override
+            public Type[] getActualTypeArguments()
+            {
+                return new Type[] {element};
+            }
+
+            @Override
+            public Type getRawType()
+            {
+                return List.class;
+            }
+
+            @Override
+            public Type getOwnerType()
+            {
+                return null;
+            }
+
+            @Override
+            public String getTypeName()
+            {
+                return "java.util.List<" + element.getName() + ">";
+            }
+        };
+    }
+
+    private static Schema schema(Type type)
+    {
+        return new ClassSchema(type);
+    }
+
+    private static Class<?> rawType(Type type)
+    {
+        if (type instanceof Class) {
+            return (Class<?>) type;
+        }
+        if (type instanceof ParameterizedType) {
+            return (Class<?>) ((ParameterizedType) type).getRawType();
+        }
+        throw new UnsupportedTemplateException(format("type %s", type.getTypeName()));
+    }
+
+    private static class Frame
+    {
+        private final Schema schema;
+        private final String variable;
+
+        private Frame(Schema schema, String variable)
+        {
+            this.schema = schema;
+            this.variable = variable;
+        }
+    }
+
+    private static class Value
+    {
+        private final Schema schema;
+        private final String expression;
+        // the expression cast to the type of the schema, map values are only cast where they're used as sections
+        private final String typedExpression;
+
+        private Value(Schema schema, String expression, String typedExpression)
+        {
+            this.schema = schema;
+            this.expression = expression;
+            this.typedExpression = typedExpression;
+        }
+    }
+
+    private interface Schema
+    {
+        /**
+         * Returns the member with the given name, or null if the name is looked up in the enclosing section.
+         */
+        Value member(String name, String variable);
+
+        String typeName();
+
+        boolean isBoolean();
+
+        /**
+         * Returns the element type if the values are iterated, null otherwise.
+         */
+        Type elementType();
+    }
+
+    /**
+     * A map with known keys, a key that is not in the schema is looked up in the enclosing section.
+     */
+    private static class MapSchema
+            implements Schema
+    {
+        private final Map<String, Schema> keys;
+
+        private MapSchema(Map<String, Schema> keys)
+        {
+            this.keys = keys;
+        }
+
+        @Override
+        public Value member(String name, String variable)
+        {
+            Schema schema = keys.get(name);
+            if (schema == null) {
+                return null;
+            }
+            String expression = format("%s.get(%s)", variable, literal(name));
+            return new Value(schema, expression, format("(%s) %s", schema.typeName(), expression));
+        }
+
+        @Override
+        public String typeName()
+        {
+            return "java.util.Map<String, Object>";
+        }
+
+        @Override
+        public boolean isBoolean()
+        {
+            return false;
+        }
+
+        @Override
+        public Type elementType()
+        {
+            return null;
+        }
+    }
+
+    /**
+     * A Java type whose members are looked up like JMustache's collector does: a method with the name, then a getter,
+     * then a field, in the class and its superclasses.
+     */
+    private static class ClassSchema
+            implements Schema
+    {
+        private final Type type;
+        private final Class<?> rawType;
+
+        private ClassSchema(Type type)
+        {
+            this.type = type;
+            this.rawType = rawType(type);
+        }
+
+        @Override
+        public Value member(String name, String variable)
+        {
+            if (isScalar() || Iterable.class.isAssignableFrom(rawType) || Map.class.isAssignableFrom(rawType)) {
+                throw new UnsupportedTemplateException(format("name '%s' in a section of type %s", name, typeName()));
+            }
+            String getter = "get" + Character.toUpperCase(name.charAt(0)) + name.substring(1);
+            for (Class<?> clazz = rawType; clazz != null && clazz != Object.class; clazz = clazz.getSuperclass()) {
+                for (String methodName : new String[] {name, getter}) {
+                    for (Method method : clazz.getDeclaredMethods()) {
+                        if (method.getName().equals(methodName) && method.getParameterCount() == 0 && method.getReturnType() != void.class) {
+                            requirePublic(method.getModifiers(), name);
+                            String expression = variable + "." + methodName + "()";
+                            return new Value(schema(method.getGenericReturnType()), expression, expression);
+                        }
+                    }
+                }
+            }
+            for (Class<?> clazz = rawType; clazz != null && clazz != Object.class; clazz = clazz.getSuperclass()) {
+                for (Field field : clazz.getDeclaredFields()) {
+                    if (field.getName().equals(name)) {
+                        requirePublic(field.getModifiers(), name);
+                        String expression = variable + "." + name;
+                        return new Value(schema(field.getGenericType()), expression, expression);
+                    }
+                }
+            }
+            return null;
+        }
+
+        private static void requirePublic(int modifiers, String name)
+        {
+            if (!Modifier.isPublic(modifiers) || Modifier.isStatic(modifiers)) {
+                throw new UnsupportedTemplateException(format("name '%s' is not a public member", name));
+            }
+        }
+
+        private boolean isScalar()
+        {
+            return rawType.isPrimitive() || rawType == String.class || Number.class.isAssignableFrom(rawType)
+                    || rawType == Boolean.class || rawType == Character.class || rawType.isEnum();
+        }
+
+        @Override
+        public String typeName()
+        {
+            if (rawType.isPrimitive()) {
+                // boxed so that the locals hold the same values JMustache sees
+                return rawType == boolean.class ? "Boolean" : "Object";
+            }
+            return type.getTypeName().replace('$', '.');
+        }
+
+        @Override
+        public boolean isBoolean()
+        {
+            return rawType == Boolean.class || rawType == boolean.class;
+        }
+
+        @Override
+        public Type elementType()
+        {
+            if (!Iterable.class.isAssignableFrom(rawType)) {
+                return null;
+            }
+            if (!(type instanceof ParameterizedType)) {
+                throw new UnsupportedTemplateException(format("raw type %s", typeName()));
+            }
+            Type element = ((ParameterizedType) type).getActualTypeArguments()[0];
+            rawType(element);
+            return element;
+        }
+    }
+
+    private interface Node
+    {
+    }
+
+    private static class Text
+            implements Node
+    {
+        private final String text;
+
+        private Text(String text)
+        {
+            this.text = text;
+        }
+    }
+
+    private static class Variable
+            implements Node
+    {
+        private final String name;
+        private final boolean escaped;
+
+        private Variable(String name, boolean escaped)
+        {
+            this.name = name;
+            this.escaped = escaped;
+        }
+    }
+
+    private static class Section
+            implements Node
+    {
+        private final String name;
+        private final boolean inverted;
+        private final List<Node> nodes = new ArrayList<>();
+
+        private Section(String name, boolean inverted)
+        {
+            this.name = name;
+            this.inverted = inverted;
+        }
+    }
+
+    /**
+     * Port of the parser of JMustache 1.9 with the default delimiters, including its handling of the newline after
+     * a section tag.
+     */
+    private static class Parser
+    {
+        private static final int TEXT = 0;
+        private static final int MATCHING_START = 1;
+        private static final int TAG = 2;
+        private static final int MATCHING_END = 3;
+
+        private final String source;
+        private final StringBuilder text = new StringBuilder();
+        private final Deque<Section> sections = new ArrayDeque<>();
+        private final List<Node> root = new ArrayList<>();
+
+        private int position;
+        private int state = TEXT;
+        private int column;
+        private int tagStartColumn = -1;
+        private boolean skipNewline;
+
+        private Parser(String source)
+        {
+            this.source = source;
+        }
+
+        private List<Node> parse()
+        {
+            while (position < source.length()) {
+                char c = source.charAt(position++);
+                if (c == '\n') {
+                    column = 0;
+                    if (skipNewline) {
+                        int last = text.length() - 1;
+                        if (last >= 0 && text.charAt(last) == '\r') {
+                            text.setLength(last);
+                        }
+                        skipNewline = false;
+                        continue;
+                    }
+                }
+                else {
+                    column++;
+                    skipNewline = false;
+                }
+                parseChar(c);
+            }
+
+            switch (state) {
+                case TAG:
+                    text.insert(0, "{{");
+                    break;
+                case MATCHING_END:
+                    text.insert(0, "{{").append('}');
+                    break;
+                case MATCHING_START:
+                    text.append('{');
+                    break;
+                default:
+                    break;
+            }
+            addText();
+            if (!sections.isEmpty()) {
+                throw new IllegalArgumentException(format("Section missing close tag '%s'", sections.peek().name));
+            }
+            return root;
+        }
+
+        private void parseChar(char c)
+        {
+            switch (state) {
+                case TEXT:
+                    if (c == '{') {
+                        state = MATCHING_START;
+                        tagStartColumn = column;
+                    }
+                    else {
+                        text.append(c);
+                    }
+                    break;
+                case MATCHING_START:
+                    if (c == '{') {
+                        addText();
+                        state = TAG;
+                    }
+                    else {
+                        text.append('{');
+                        state = TEXT;
+                        parseChar(c);
+                    }
+                    break;
+                case TAG:
+                    if (c == '}') {
+                        state = MATCHING_END;
+                    }
+                    else if (c == '{' && text.length() > 0 && text.charAt(0) != '!') {
+                        text.insert(0, "{{");
+                        addText();
+                        tagStartColumn = column;
+                        state = MATCHING_START;
+                    }
+                    else {
+                        text.append(c);
+                    }
+                    break;
+                case MATCHING_END:
+                    if (c == '}') {
+                        if (text.charAt(0) == '=') {
+                            throw new UnsupportedTemplateException("delimiter changes");
+                        }
+                        if (text.charAt(0) == '{') {
+                            if (position >= source.length() || source.charAt(position++) != '}') {
+                                throw new IllegalArgumentException(format("Invalid triple-mustache tag: {{{%s}}", text));
+                            }
+                            text.replace(0, 1, "&");
+                        }
+                        addTag(text.toString());
+                        text.setLength(0);
+                        skipNewline = tagStartColumn == 1 && justOpenedOrClosedBlock();
+                        state = TEXT;
+                    }
+                    else {
+                        text.append('}');
+                        state = TAG;
+                        parseChar(c);
+                    }
+                    break;
+                default:
+                    throw new IllegalStateException();
+            }
+        }
+
+        private boolean justOpenedOrClosedBlock()
+        {
+            List<Node> nodes = nodes();
+            return (!sections.isEmpty() && nodes.isEmpty()) || (!nodes.isEmpty() && nodes.get(nodes.size() - 1) instanceof Section);
+        }
+
+        private List<Node> nodes()
+        {
+            return sections.isEmpty() ? root : sections.peek().nodes;
+        }
+
+        private void addText()
+        {
+            if (text.length() > 0) {
+                nodes().add(new Text(text.toString()));
+                text.setLength(0);
+            }
+        }
+
+        private void addTag(String content)
+        {
+            String tag = content.trim();
+            String name = tag.substring(1).trim();
+            switch (tag.charAt(0)) {
+                case '#':
+                case '^':
+                    Section section = new Section(name, tag.charAt(0) == '^');
+                    sections.push(section);
+                    break;
+                case '/':
+                    if (sections.isEmpty() || !sections.peek().name.equals(name)) {
+                        throw new IllegalArgumentException(format("Section close tag with no matching open tag '%s'", name));
+                    }
+                    Section closed = sections.pop();
+                    nodes().add(closed);
+                    break;
+                case '>':
+                    throw new UnsupportedTemplateException(format("partial '%s'", name));
+                case '!':
+                    break;
+                case '&':
+                    nodes().add(new Variable(name, false));
+                    break;
+                default:
+                    nodes().add(new Variable(tag, true));
+                    break;
+            }
+        }
+    }
+
+    private static class UnsupportedTemplateException
+            extends RuntimeException
+    {
+        private UnsupportedTemplateException(String message)
+        {
+            super(message);
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package org.rakam.client;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.base.Splitter;
 import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
@@ -10,35 +12,140 @@ import io.airlift.airline.Option;
 import io.github.robwin.markup.builder.markdown.MarkdownBuilder;
 import io.swagger.codegen.CodegenConstants;
 import io.swagger.codegen.config.CodegenConfigurator;
+import io.swagger.models.Swagger;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.output.TeeOutputStream;
 import org.apache.commons.lang3.tuple.Pair;
+import org.rakam.client.builder.document.ExampleLimits;
+import org.rakam.client.builder.document.RenderBudget;
 import org.rakam.client.builder.document.SlateDocumentGenerator;
+import org.rakam.client.builder.document.SlateFragment;
+import org.rakam.client.server.PreviewServer;
+import org.rakam.client.spec.HttpSpecCache;
+import org.rakam.client.spec.LazySwaggerLoader;
+import org.rakam.client.spec.SwaggerSnapshot;
+import org.rakam.client.utils.EnumTables;
+import org.rakam.client.utils.IoExecutors;
+import org.rakam.client.utils.ParallelGzipOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.nio.charset.Charset;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import static java.lang.String.format;
 
 import static org.apache.commons.lang3.StringUtils.isNotEmpty;
 
 public class SlateGenerator {
-    
+    private static final Logger LOGGER = LoggerFactory.getLogger(SlateGenerator.class);
+
     public static void main(String[] args) {
         Cli.CliBuilder<Runnable> builder = Cli.<Runnable>builder("swagger")
                 .withDescription("Swagger code generator CLI. More info on swagger.io")
                 .withCommands(
                         Generate.class,
+                        Batch.class,
+                        Merge.class,
+                        Diff.class,
+                        Serve.class,
+                        Warmup.class,
                         Help.class
                 );
 
         builder.build().parse(args).run();
     }
 
-    @Command(name = "generate", description = "Generate code with chosen lang")
-    public static class Generate implements Runnable {
+    static File outputDirectory(String output) {
+        File dir = new File(output);
+        if (!dir.exists()) {
+            dir.mkdirs();
+        } else
+        if(dir.isFile()) {
+            throw new IllegalArgumentException("Output must be a directory");
+        }
+        return dir;
+    }
+
+    static void writeDocument(MarkdownBuilder build, String output) throws IOException {
+        writeDocument(build, output, "slate.md");
+    }
+
+    static void writeDocument(MarkdownBuilder build, String output, String fileName) throws IOException {
+        writeDocument(build, output, fileName, false);
+    }
+
+    /**
+     * Writes the document, and with {@code gzip} also a compressed copy next to it with the {@code .gz} suffix. Both
+     * files are written from the same pass over the document.
+     */
+    static void writeDocument(MarkdownBuilder build, String output, String fileName, boolean gzip) throws IOException {
+        File file = new File(outputDirectory(output), fileName);
+        try (OutputStream document = new FileOutputStream(file);
+             OutputStream compressed = gzip ? new ParallelGzipOutputStream(new FileOutputStream(file.getPath() + ".gz")) : null;
+             Writer writer = new OutputStreamWriter(compressed == null ? document : new TeeOutputStream(document, compressed), StandardCharsets.UTF_8)) {
+            writer.write(build.toString());
+        }
+    }
+
+    /**
+     * Writes a compressed copy of each file next to it with the {@code .gz} suffix. The files are compressed
+     * concurrently, and each of them in parallel blocks.
+     */
+    static void gzip(List<File> files) throws IOException {
+        CompletableFuture<?>[] futures = files.stream()
+                .map(file -> CompletableFuture.runAsync(() -> {
+                    try (OutputStream out = new ParallelGzipOutputStream(new FileOutputStream(file.getPath() + ".gz"))) {
+                        Files.copy(file.toPath(), out);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }, IoExecutors.shared()))
+                .toArray(CompletableFuture[]::new);
+        try {
+            CompletableFuture.allOf(futures).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            }
+            throw Throwables.propagate(e.getCause());
+        }
+    }
+
+    /**
+     * Options shared by the commands that render documents for a set of languages.
+     */
+    public static abstract class LanguageCommand implements Runnable {
         @Option(name = {"-D"}, title = "system properties", description = "sets specified system properties in " +
                 "the format of name=value,name=value")
         private String systemProperties;
@@ -58,17 +165,80 @@ public class SlateGenerator {
                 description = "client languages separetd by comma to generate (maybe class name in classpath, required)")
         private String langs;
 
-        @Option(name = {"-i", "--input-spec"}, title = "spec file", required = true,
-                description = "location of the swagger spec, as URL or file (required)")
-        private String spec;
+        @Option(name = {"--http-cache"}, title = "http cache directory",
+                description = "directory to cache the remote specs and the remote documents they reference, " +
+                        "cached documents are revalidated with conditional requests")
+        private String httpCache;
 
-        @Option(name = {"-o", "--output"}, title = "output directory",
-                description = "where to write the generated files (current dir by default)")
-        private String output = "";
+        @Option(name = {"--offline"}, description = "use only the documents in the http cache without sending any requests")
+        private boolean offline;
 
-        @Override
-        public void run() {
+        @Option(name = {"--example-max-depth"}, title = "depth",
+                description = "nesting depth of the generated JSON examples, deeper values are omitted (16 by default)")
+        private int exampleMaxDepth = ExampleLimits.DEFAULT.getMaxDepth();
+
+        @Option(name = {"--example-max-properties"}, title = "properties",
+                description = "properties of an object in the generated JSON examples (100 by default)")
+        private int exampleMaxProperties = ExampleLimits.DEFAULT.getMaxProperties();
 
+        @Option(name = {"--example-max-array-items"}, title = "items",
+                description = "items of an array in the generated JSON examples (1 by default)")
+        private int exampleMaxArrayItems = ExampleLimits.DEFAULT.getMaxArrayItems();
+
+        @Option(name = {"--example-max-bytes"}, title = "bytes",
+                description = "size of a generated JSON example, the remaining values are omitted once it's reached (65536 by default)")
+        private int exampleMaxBytes = ExampleLimits.DEFAULT.getMaxBytes();
+
+        @Option(name = {"--deadline"}, title = "seconds",
+                description = "time limit of rendering a document, the operations and definitions that are rendered after it " +
+                        "are rendered without examples and properties (no limit by default)")
+        private long deadline;
+
+        @Option(name = {"--operation-budget"}, title = "milliseconds",
+                description = "time limit of generating the examples of an operation, operations that exceed it are rendered " +
+                        "without examples and reported (no limit by default)")
+        private long operationBudget;
+
+        @Option(name = {"--enum-table-threshold"}, title = "values",
+                description = "number of values above which an enum is rendered once as its own section and linked from " +
+                        "the tables, 0 renders all the enums inline (20 by default)")
+        private int enumTableThreshold = EnumTables.DEFAULT_THRESHOLD;
+
+        @Option(name = {"--skip-validation"},
+                description = "render specs that fail the validation, the operations that can't be rendered are skipped")
+        private boolean skipValidation;
+
+        protected int getEnumTableThreshold() {
+            return enumTableThreshold;
+        }
+
+        protected boolean isValidate() {
+            return !skipValidation;
+        }
+
+        protected RenderBudget getRenderBudget() {
+            return new RenderBudget(TimeUnit.SECONDS.toMillis(deadline), operationBudget);
+        }
+
+        protected ExampleLimits getExampleLimits() {
+            return new ExampleLimits(exampleMaxDepth, exampleMaxProperties, exampleMaxArrayItems, exampleMaxBytes);
+        }
+
+        protected void installHttpCache() {
+            if (httpCache == null) {
+                if (offline) {
+                    throw new IllegalArgumentException("--offline requires --http-cache");
+                }
+                return;
+            }
+            new HttpSpecCache(new File(httpCache), offline).install();
+        }
+
+        protected ImmutableList<CodegenConfigurator> createConfigurators(String spec, String output) {
+            return createConfigurators(langs, spec, output);
+        }
+
+        protected ImmutableList<CodegenConfigurator> createConfigurators(String langs, String spec, String output) {
             ImmutableList.Builder<CodegenConfigurator> builder = ImmutableList.builder();
             List<String> langList = ImmutableList.copyOf(Splitter.on(",").trimResults().split(langs));
             List<String> configFiles;
@@ -110,24 +280,11 @@ public class SlateGenerator {
                 setSystemProperties(configurator);
                 builder.add(configurator);
             }
+            return builder.build();
+        }
 
-            try {
-                MarkdownBuilder build = new SlateDocumentGenerator(builder.build()).build();
-                File dir = new File(output);
-                if (!dir.exists()) {
-                    dir.mkdirs();
-                } else
-                if(dir.isFile()) {
-                    throw new IllegalArgumentException("Output must be a directory");
-                }
-                File file = new File(dir, "slate.md");
-                file.createNewFile();
-                FileOutputStream fileOutputStream = new FileOutputStream(file);
-                fileOutputStream.write(build.toString().getBytes(Charset.forName("UTF-8")));
-                fileOutputStream.close();
-            } catch (IOException e) {
-                throw Throwables.propagate(e);
-            }
+        protected String getLanguages() {
+            return langs;
         }
 
         private void setSystemProperties(CodegenConfigurator configurator) {
@@ -180,4 +337,404 @@ public class SlateGenerator {
             return results;
         }
     }
-}
\ No newline at end of file
+
+    @Command(name = "generate", description = "Generate code with chosen lang")
+    public static class Generate extends LanguageCommand {
+        @Option(name = {"-i", "--input-spec"}, title = "spec file", required = true,
+                description = "location of the swagger spec, as URL or file (required)")
+        private String spec;
+
+        @Option(name = {"-o", "--output"}, title = "output directory",
+                description = "where to write the generated files (current dir by default)")
+        private String output = "";
+
+        @Option(name = {"--shard"}, title = "shard",
+                description = "generate only the i-th of N partitions of the tags in the format of i/N, starting from 1. " +
+                        "Writes slate.shard-i-of-N.md and its json sidecar instead of slate.md, use merge command to assemble the shards")
+        private String shard;
+
+        @Option(name = {"--snapshot"}, title = "snapshot file",
+                description = "file to store the parsed spec in binary form, later runs load it instead of parsing the spec " +
+                        "while the spec file is unchanged")
+        private String snapshot;
+
+        @Option(name = {"--lazy"}, description = "memory-map the spec and parse the paths and definitions only when they " +
+                "are rendered, for very large JSON specs")
+        private boolean lazy;
+
+        @Option(name = {"--gzip"}, description = "also write a gzip compressed copy of each output file with the .gz suffix")
+        private boolean gzip;
+
+        @Override
+        public void run() {
+            installHttpCache();
+            if (lazy && snapshot != null) {
+                throw new IllegalArgumentException("--lazy and --snapshot can't be used together");
+            }
+            try {
+                SlateDocumentGenerator generator = new SlateDocumentGenerator(createConfigurators(spec, output), getExampleLimits(), getRenderBudget(),
+                        getEnumTableThreshold(), isValidate());
+                Swagger swagger;
+                if (lazy) {
+                    swagger = LazySwaggerLoader.read(spec, null);
+                } else if (snapshot != null) {
+                    swagger = SwaggerSnapshot.read(spec, null, new File(snapshot));
+                } else {
+                    swagger = SlateDocumentGenerator.readSwagger(spec, null);
+                }
+                if (shard == null) {
+                    writeDocument(generator.render(swagger), output, "slate.md", gzip);
+                    return;
+                }
+
+                List<String> parts = Splitter.on('/').trimResults().splitToList(shard);
+                if (parts.size() != 2) {
+                    throw new IllegalArgumentException("Shard must be in the format of i/N");
+                }
+                int index = Integer.parseInt(parts.get(0));
+                int count = Integer.parseInt(parts.get(1));
+                if (index < 1 || index > count) {
+                    throw new IllegalArgumentException("Shard index must be between 1 and N");
+                }
+
+                SlateFragment fragment = generator.renderFragment(swagger, SlateDocumentGenerator.partitionTags(swagger, index - 1, count));
+                String name = format("slate.shard-%d-of-%d", index, count);
+                fragment.write(outputDirectory(output), name);
+                if (gzip) {
+                    gzip(ImmutableList.of(new File(outputDirectory(output), name + ".md"), new File(outputDirectory(output), name + ".json")));
+                }
+            } catch (IOException e) {
+                throw Throwables.propagate(e);
+            }
+        }
+    }
+
+    @Command(name = "diff", description = "Generate a changelog of the operations and definitions that changed between two versions of a spec")
+    public static class Diff extends LanguageCommand {
+        @Option(name = {"--previous-spec"}, title = "previous spec file", required = true,
+                description = "location of the previous version of the swagger spec, as URL or file (required)")
+        private String previousSpec;
+
+        @Option(name = {"-i", "--input-spec"}, title = "spec file", required = true,
+                description = "location of the swagger spec, as URL or file (required)")
+        private String spec;
+
+        @Option(name = {"-o", "--output"}, title = "output directory",
+                description = "where to write changelog.md (current dir by default)")
+        private String output = "";
+
+        @Override
+        public void run() {
+            installHttpCache();
+            try {
+                SlateDocumentGenerator generator = new SlateDocumentGenerator(createConfigurators(spec, output), getExampleLimits(), getRenderBudget(),
+                        getEnumTableThreshold(), isValidate());
+                Swagger previous = SlateDocumentGenerator.readSwagger(previousSpec, null);
+                Swagger swagger = SlateDocumentGenerator.readSwagger(spec, null);
+                writeDocument(generator.renderChangelog(previous, swagger), output, "changelog.md");
+            } catch (IOException e) {
+                throw Throwables.propagate(e);
+            }
+        }
+    }
+
+    @Command(name = "merge", description = "Assemble the fragments generated with --shard into slate.md")
+    public static class Merge implements Runnable {
+        private static final Pattern FRAGMENT_NAME = Pattern.compile("slate\\.shard-(\\d+)-of-(\\d+)\\.json");
+
+        @Option(name = {"-l", "--languages"}, title = "language", required = true,
+                description = "client languages separetd by comma that the fragments are generated for (required)")
+        private String langs;
+
+        @Option(name = {"-i", "--input-spec"}, title = "spec file", required = true,
+                description = "location of the swagger spec, as URL or file (required)")
+        private String spec;
+
+        @Option(name = {"-f", "--fragments"}, title = "fragments directory",
+                description = "directory that contains the fragments (output directory by default)")
+        private String fragments;
+
+        @Option(name = {"-o", "--output"}, title = "output directory",
+                description = "where to write the generated files (current dir by default)")
+        private String output = "";
+
+        @Override
+        public void run() {
+            File directory = new File(fragments == null ? output : fragments).getAbsoluteFile();
+            File[] files = directory.listFiles((dir, name) -> FRAGMENT_NAME.matcher(name).matches());
+            if (files == null || files.length == 0) {
+                throw new IllegalArgumentException(format("No fragments found in %s", directory));
+            }
+
+            Map<Integer, File> shards = new TreeMap<>();
+            Set<Integer> counts = new HashSet<>();
+            for (File file : files) {
+                Matcher matcher = FRAGMENT_NAME.matcher(file.getName());
+                matcher.matches();
+                shards.put(Integer.parseInt(matcher.group(1)), file);
+                counts.add(Integer.parseInt(matcher.group(2)));
+            }
+            if (counts.size() != 1 || shards.size() != counts.iterator().next()) {
+                throw new IllegalArgumentException(format("Fragments in %s are incomplete or belong to different shard counts", directory));
+            }
+
+            try {
+                List<SlateFragment> slateFragments = new ArrayList<>();
+                for (File file : shards.values()) {
+                    slateFragments.add(SlateFragment.read(file));
+                }
+                List<String> languages = ImmutableList.copyOf(Splitter.on(",").trimResults().split(langs));
+                writeDocument(SlateDocumentGenerator.merge(SlateDocumentGenerator.readSwagger(spec, null), languages, slateFragments), output);
+            } catch (IOException e) {
+                throw Throwables.propagate(e);
+            }
+        }
+    }
+
+    @Command(name = "batch", description = "Generate documents for all the specs in a manifest file")
+    public static class Batch extends LanguageCommand {
+        @Option(name = {"-m", "--manifest"}, title = "manifest file", required = true,
+                description = "Path to json manifest file. File content should be in a json format " +
+                        "[{\"spec\":\"path or url\", \"languages\":\"java,python\", \"output\":\"directory\"}...], " +
+                        "languages are optional and default to -l, relative paths are resolved against the manifest directory (required)")
+        private String manifest;
+
+        @Option(name = {"-t", "--threads"}, title = "threads",
+                description = "number of specs to generate concurrently (number of processors by default)")
+        private int threads = Runtime.getRuntime().availableProcessors();
+
+        @Override
+        public void run() {
+            installHttpCache();
+            File manifestFile = new File(manifest);
+            List<ManifestEntry> entries;
+            try {
+                entries = new ObjectMapper().readValue(manifestFile, new TypeReference<List<ManifestEntry>>() {});
+            } catch (IOException e) {
+                throw Throwables.propagate(e);
+            }
+
+            // specs with the same languages share the generator, so the codegen configs and templates are prepared once
+            Map<String, SlateDocumentGenerator> generators = new ConcurrentHashMap<>();
+            // reading and writing the specs may overlap with the rendering on virtual threads, but at most twice the
+            // thread count of specs are held in memory, and at most the thread count are rendered at once
+            ExecutorService executor = IoExecutors.newExecutor(threads);
+            Semaphore loaded = new Semaphore(2 * threads);
+            Semaphore rendering = new Semaphore(threads);
+            List<Future<Long>> results = new ArrayList<>();
+            for (ManifestEntry entry : entries) {
+                String langs = isNotEmpty(entry.languages) ? entry.languages : getLanguages();
+                String spec = resolve(manifestFile, entry.spec);
+                String output = resolve(manifestFile, entry.output == null ? "" : entry.output);
+                results.add(executor.submit(() -> {
+                    loaded.acquire();
+                    try {
+                        long start = System.nanoTime();
+                        Swagger swagger = SlateDocumentGenerator.readSwagger(spec, null);
+                        MarkdownBuilder document;
+                        rendering.acquire();
+                        try {
+                            SlateDocumentGenerator generator = generators.computeIfAbsent(langs, key -> {
+                                try {
+                                    return new SlateDocumentGenerator(createConfigurators(key, null, null), getExampleLimits(), getRenderBudget(),
+                                            getEnumTableThreshold(), isValidate());
+                                } catch (IOException e) {
+                                    throw new UncheckedIOException(e);
+                                }
+                            });
+                            document = generator.render(swagger);
+                        } finally {
+                            rendering.release();
+                        }
+                        writeDocument(document, output);
+                        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                    } finally {
+                        loaded.release();
+                    }
+                }));
+            }
+            executor.shutdown();
+
+            int failed = 0;
+            for (int i = 0; i < entries.size(); i++) {
+                String spec = entries.get(i).spec;
+                try {
+                    System.out.println(format("%-60s %8d ms", spec, results.get(i).get()));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw Throwables.propagate(e);
+                } catch (ExecutionException e) {
+                    failed++;
+                    LOGGER.error(format("An error occurred while generating %s", spec), e.getCause());
+                    System.out.println(format("%-60s   FAILED %s", spec, e.getCause().getMessage()));
+                }
+            }
+            System.out.println(format("%d of %d specs generated", entries.size() - failed, entries.size()));
+            if (failed > 0) {
+                System.exit(1);
+            }
+        }
+
+        private static String resolve(File manifestFile, String location) {
+            if (location.contains("://") || new File(location).isAbsolute() || manifestFile.getAbsoluteFile().getParentFile() == null) {
+                return location;
+            }
+            return new File(manifestFile.getAbsoluteFile().getParentFile(), location).getPath();
+        }
+
+        public static class ManifestEntry {
+            public String spec;
+            public String languages;
+            public String output;
+        }
+    }
+
+    @Command(name = "serve", description = "Serve rendered documents over HTTP for previews")
+    public static class Serve extends LanguageCommand {
+        @Option(name = {"--host"}, title = "host", description = "address to listen on (localhost by default)")
+        private String host = "localhost";
+
+        @Option(name = {"-p", "--port"}, title = "port", description = "port to listen on (4567 by default)")
+        private int port = 4567;
+
+        @Option(name = {"--cache-size"}, title = "cache size",
+                description = "maximum size of the rendered documents to keep in memory in megabytes (64 by default)")
+        private long cacheSize = 64;
+
+        @Option(name = {"--spec-root"}, title = "directory",
+                description = "directory of the specs that can be rendered with the spec parameter, and of the files they reference (current directory by default)")
+        private String specRoot = ".";
+
+        @Option(name = {"--allow-remote-specs"}, description = "allow rendering specs and references from urls")
+        private boolean allowRemoteSpecs;
+
+        @Override
+        public void run() {
+            installHttpCache();
+            try {
+                new PreviewServer(createConfigurators(null, null), getExampleLimits(), getRenderBudget(), getEnumTableThreshold(), isValidate(),
+                        Paths.get(specRoot), allowRemoteSpecs, new InetSocketAddress(host, port), cacheSize * 1024 * 1024).start();
+            } catch (IOException e) {
+                throw Throwables.propagate(e);
+            }
+        }
+    }
+
+    @Command(name = "warmup", description = "Create a class data sharing archive that makes the later runs start faster")
+    public static class Warmup extends LanguageCommand {
+        private static final String EXAMPLE_SPEC = "rakam-example-spec.json";
+
+        @Option(name = {"-o", "--archive"}, title = "archive file",
+                description = "where to write the archive (next to the jar with the .jsa extension by default, " +
+                        "where bin/swagger-slate looks for it)")
+        private String archive;
+
+        @Option(name = {"--benchmark"}, title = "runs",
+                description = "after creating the archive, compare the time until slate.md is written with and without it")
+        private int benchmarkRuns;
+
+        // the representative run, in the JVM that records the loaded classes
+        @Option(name = {"--record"}, hidden = true)
+        private boolean record;
+
+        @Override
+        public void run() {
+            Path directory = null;
+            try {
+                directory = Files.createTempDirectory("swagger-slate-warmup");
+                Path spec = directory.resolve(EXAMPLE_SPEC);
+                try (InputStream in = SlateGenerator.class.getClassLoader().getResourceAsStream(EXAMPLE_SPEC)) {
+                    Files.copy(in, spec);
+                }
+                if (record) {
+                    SlateDocumentGenerator generator = new SlateDocumentGenerator(createConfigurators(null, null), getExampleLimits());
+                    writeDocument(generator.render(SlateDocumentGenerator.readSwagger(spec.toString(), null)), directory.toString());
+                    return;
+                }
+                if (System.getProperty("org.graalvm.nativeimage.imagecode") != null) {
+                    // the native executable is compiled ahead of time, there are no classes to archive
+                    System.out.println("The native executable doesn't use a class data sharing archive, nothing to do");
+                    return;
+                }
+
+                if (javaVersion() < 13) {
+                    throw new IllegalArgumentException("Creating the archive requires Java 13 or later");
+                }
+                File archiveFile = archive == null ? defaultArchive() : new File(archive);
+                // the classes that can't be archived are only reported as warnings
+                List<String> dump = ImmutableList.of("-XX:ArchiveClassesAtExit=" + archiveFile.getAbsolutePath(), "-Xlog:cds=error");
+                int exitCode = java(dump, "warmup", "--record", "-l", getLanguages()).inheritIO().start().waitFor();
+                if (exitCode != 0 || !archiveFile.isFile()) {
+                    throw new IllegalStateException(format("Unable to create the archive %s", archiveFile));
+                }
+                System.out.println(format("Created %s", archiveFile));
+
+                if (benchmarkRuns > 0) {
+                    long without = timeToFirstByte(null, spec, directory);
+                    long with = timeToFirstByte(archiveFile, spec, directory);
+                    System.out.println(format("time to first byte of slate.md, median of %d runs: %d ms without the archive, %d ms with it",
+                            benchmarkRuns, without, with));
+                }
+            } catch (IOException e) {
+                throw Throwables.propagate(e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw Throwables.propagate(e);
+            } finally {
+                if (directory != null) {
+                    FileUtils.deleteQuietly(directory.toFile());
+                }
+            }
+        }
+
+        private long timeToFirstByte(File archiveFile, Path spec, Path directory) throws IOException, InterruptedException {
+            String sharing = archiveFile == null ? "-Xshare:auto" : "-XX:SharedArchiveFile=" + archiveFile.getAbsolutePath();
+            long[] times = new long[benchmarkRuns];
+            for (int i = 0; i < benchmarkRuns; i++) {
+                Path output = Files.createTempDirectory(directory, "run");
+                File document = output.resolve("slate.md").toFile();
+                long start = System.nanoTime();
+                Process process = java(ImmutableList.of(sharing), "generate", "-l", getLanguages(), "-i", spec.toString(), "-o", output.toString())
+                        .redirectErrorStream(true)
+                        .redirectOutput(ProcessBuilder.Redirect.appendTo(directory.resolve("benchmark.log").toFile()))
+                        .start();
+                while (document.length() == 0 && process.isAlive()) {
+                    Thread.sleep(1);
+                }
+                times[i] = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                if (process.waitFor() != 0) {
+                    throw new IllegalStateException("Benchmark run failed:\n" + new String(Files.readAllBytes(directory.resolve("benchmark.log")), StandardCharsets.UTF_8));
+                }
+            }
+            Arrays.sort(times);
+            return times[times.length / 2];
+        }
+
+        private static ProcessBuilder java(List<String> jvmOptions, String... arguments) {
+            List<String> command = new ArrayList<>();
+            command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+            command.addAll(jvmOptions);
+            // the archive only matches the runs with the same class path, which are started with absolute paths
+            command.add("-cp");
+            command.add(Splitter.on(File.pathSeparator).splitToList(System.getProperty("java.class.path")).stream()
+                    .map(entry -> new File(entry).getAbsolutePath())
+                    .collect(Collectors.joining(File.pathSeparator)));
+            command.add(SlateGenerator.class.getName());
+            command.addAll(Arrays.asList(arguments));
+            return new ProcessBuilder(command);
+        }
+
+        private static File defaultArchive() {
+            String classPath = System.getProperty("java.class.path");
+            if (!classPath.endsWith(".jar") || classPath.contains(File.pathSeparator)) {
+                throw new IllegalArgumentException("Not running from a single jar, specify the archive with -o");
+            }
+            return new File(classPath.substring(0, classPath.length() - ".jar".length()) + ".jsa");
+        }
+
+        private static int javaVersion() {
+            String version = System.getProperty("java.specification.version");
+            return Integer.parseInt(version.startsWith("1.") ? version.substring(2) : version);
+        }
+    }
+}
@@ -3,7 +3,6 @@ package org.rakam.client.builder.document;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import io.github.robwin.markup.builder.MarkupDocBuilder;
-import io.github.robwin.markup.builder.markdown.MarkdownBuilder;
 import io.swagger.models.ComposedModel;
 import io.swagger.models.Model;
 import io.swagger.models.RefModel;
@@ -11,20 +10,23 @@ import io.swagger.models.Swagger;
 import io.swagger.models.properties.Property;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.rakam.client.utils.EnumTables;
 import org.rakam.client.utils.PropertyUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
-import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 /**
@@ -32,7 +34,10 @@ import java.util.stream.Collectors;
  */
 public class DefinitionsDocument  {
     private final Swagger swagger;
-    private final MarkdownBuilder markdownBuilder;
+    private final SlateMarkdownBuilder markdownBuilder;
+    private final long deadline;
+    private final EnumTables enumTables;
+    private final AtomicInteger degraded = new AtomicInteger();
     protected Logger logger = LoggerFactory.getLogger(getClass());
 
     private static final String DEFINITIONS = "Definitions";
@@ -42,9 +47,19 @@ public class DefinitionsDocument  {
     private String descriptionsFolderPath;
 
 
-    public DefinitionsDocument(Swagger swagger, MarkdownBuilder markdownBuilder){
+    public DefinitionsDocument(Swagger swagger, SlateMarkdownBuilder markdownBuilder){
+        this(swagger, markdownBuilder, EnumTables.INLINE, Long.MAX_VALUE);
+    }
+
+    /**
+     * @param enumTables collects the large enums of the properties
+     * @param deadline the {@link System#nanoTime()} after which the definitions are rendered without their properties
+     */
+    public DefinitionsDocument(Swagger swagger, SlateMarkdownBuilder markdownBuilder, EnumTables enumTables, long deadline){
         this.swagger = swagger;
         this.markdownBuilder = markdownBuilder;
+        this.enumTables = enumTables;
+        this.deadline = deadline;
 
         if(StringUtils.isNotBlank(descriptionsFolderPath)){
             this.handWrittenDescriptionsEnabled = true;
@@ -64,68 +79,107 @@ public class DefinitionsDocument  {
         }
     }
 
+    /**
+     * Renders the given definitions in alphabetical order. The definitions are rendered into separate builders in
+     * parallel and appended in order, so the output doesn't depend on the scheduling.
+     */
     public void process(Set<String> definitions) throws IOException {
-        definitions(swagger.getDefinitions().entrySet().stream()
-                .filter(e -> definitions.contains(e.getKey()))
-                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue)), markdownBuilder);
+        Map<String, Model> selected = new TreeMap<>();
+        for (String name : definitions) {
+            Model model = swagger.getDefinitions().get(name);
+            if (model != null) {
+                selected.put(name, model);
+            }
+        }
+        definitions(selected, markdownBuilder);
     }
 
-    private void definitions(Map<String, Model> definitions, MarkupDocBuilder docBuilder) throws IOException {
-            docBuilder.sectionTitleLevel1(DEFINITIONS);
-            for(Map.Entry<String, Model> definitionsEntry : definitions.entrySet()){
-                String definitionName = definitionsEntry.getKey();
-                if(StringUtils.isNotBlank(definitionName)) {
-                    if (checkThatDefinitionIsNotInIgnoreList(definitionName)) {
-                        definition(definitions, definitionName, definitionsEntry.getValue(), docBuilder);
-                        if (logger.isInfoEnabled()) {
-                            logger.info("Definition processed: {}", definitionName);
-                        }
-                    }else{
-                        if (logger.isDebugEnabled()) {
-                            logger.debug("Definition was ignored: {}", definitionName);
-                        }
-                    }
-                }
+    private void definitions(Map<String, Model> definitions, SlateMarkdownBuilder docBuilder) throws IOException {
+        long start = System.nanoTime();
+        docBuilder.sectionTitleLevel1(DEFINITIONS);
+        List<String> names = definitions.keySet().stream()
+                .filter(StringUtils::isNotBlank)
+                .filter(this::checkThatDefinitionIsNotInIgnoreList)
+                .collect(Collectors.toList());
+
+        List<String> sections;
+        try {
+            sections = names.parallelStream()
+                    .map(name -> renderDefinition(definitions, name))
+                    .collect(Collectors.toList());
+        }
+        catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        sections.forEach(docBuilder::text);
 
+        if (logger.isInfoEnabled()) {
+            logger.info("Processed {} definitions ({} ignored) in {} ms", names.size(), definitions.size() - names.size(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+        if (degraded.get() > 0) {
+            logger.warn("{} definitions exceeded the render deadline and were rendered without properties", degraded.get());
+        }
+    }
+
+    private String renderDefinition(Map<String, Model> definitions, String definitionName) {
+        SlateMarkdownBuilder builder = new SlateMarkdownBuilder();
+        Model model = definitions.get(definitionName);
+        try {
+            RenderBudget.check(deadline);
+            definition(definitions, definitionName, model, builder);
+        }
+        catch (RenderBudget.ExceededException e) {
+            degraded.incrementAndGet();
+            builder = new SlateMarkdownBuilder();
+            builder.sectionTitleLevel2(definitionName);
+            modelDescription(model, builder);
+            builder.textLine("> The properties of this definition are omitted because the render deadline was exceeded.").newLine();
+            return builder.toString();
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (logger.isDebugEnabled()) {
+            logger.debug("Definition processed: {}", definitionName);
         }
+        return builder.toString();
     }
 
     private boolean checkThatDefinitionIsNotInIgnoreList(String definitionName) {
         return !IGNORED_DEFINITIONS.contains(definitionName);
     }
 
-    private void definition(Map<String, Model> definitions, String definitionName, Model model, MarkupDocBuilder docBuilder) throws IOException {
+    private void definition(Map<String, Model> definitions, String definitionName, Model model, SlateMarkdownBuilder docBuilder) throws IOException {
         docBuilder.sectionTitleLevel2(definitionName);
         descriptionSection(definitionName, model, docBuilder);
         propertiesSection(definitions, definitionName, model, docBuilder);
     }
 
-    private void propertiesSection(Map<String, Model> definitions, String definitionName, Model model, MarkupDocBuilder docBuilder) throws IOException {
-        Map<String, Property> properties = getAllProperties(definitions, model);
-        List<String> headerAndContent = new ArrayList();
-        List<String> header = Arrays.asList("name", "description", "required", "schema", "default");
-        headerAndContent.add(StringUtils.join(header,  "|"));
+    private void propertiesSection(Map<String, Model> definitions, String definitionName, Model model, SlateMarkdownBuilder docBuilder) throws IOException {
+        Map<String, Property> properties = getAllProperties(definitions, model, deadline);
         if(!properties.isEmpty()){
+            docBuilder.tableHeader("name", "description", "required", "schema", "default");
             for (Map.Entry<String, Property> propertyEntry : properties.entrySet()) {
                 Property property = propertyEntry.getValue();
                 String propertyName = propertyEntry.getKey();
-                List<String> content = Arrays.asList(
-                        propertyName,
-                        propertyDescription(definitionName, propertyName, property),
-                        Boolean.toString(property.getRequired()),
-                        PropertyUtils.getType(property),
-                        PropertyUtils.getDefaultValue(property));
-                headerAndContent.add(StringUtils.join(content, "|"));
+                docBuilder.cell(propertyName)
+                        .cell(propertyDescription(definitionName, propertyName, property))
+                        .cell(property.getRequired())
+                        .cell(PropertyUtils.getType(property, null, enumTables))
+                        .cell(PropertyUtils.getDefaultValue(property))
+                        .endRow();
             }
-            docBuilder.tableWithHeaderRow(headerAndContent);
+            docBuilder.endTable();
         }
     }
 
-    private static Map<String, Property> getAllProperties(Map<String, Model> definitions, Model model) {
+    private static Map<String, Property> getAllProperties(Map<String, Model> definitions, Model model, long deadline) {
+        RenderBudget.check(deadline);
         if(model instanceof RefModel) {
             final String ref = model.getReference();
             return definitions.containsKey(ref)
-                    ? getAllProperties(definitions, definitions.get(model.getReference()))
+                    ? getAllProperties(definitions, definitions.get(model.getReference()), deadline)
                     : null;
         }
         if(model instanceof ComposedModel) {
@@ -133,7 +187,7 @@ public class DefinitionsDocument  {
             ImmutableMap.Builder<String, Property> allProperties = ImmutableMap.builder();
             if(composedModel.getAllOf() != null) {
                 for(Model innerModel : composedModel.getAllOf()) {
-                    Map<String, Property> innerProperties = getAllProperties(definitions, innerModel);
+                    Map<String, Property> innerProperties = getAllProperties(definitions, innerModel, deadline);
                     if(innerProperties != null) {
                         allProperties.putAll(innerProperties);
                     }
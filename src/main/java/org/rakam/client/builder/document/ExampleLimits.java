@@ -0,0 +1,77 @@
+package org.rakam.client.builder.document;
+
+import org.apache.commons.lang3.Validate;
+
+import java.util.Objects;
+
+/**
+ * Limits of the JSON examples that are generated from the schemas. The limits are checked while the example is
+ * generated, the parts that exceed them are replaced with placeholders.
+ */
+public class ExampleLimits
+{
+    public static final ExampleLimits DEFAULT = new ExampleLimits(16, 100, 1, 64 * 1024);
+
+    private final int maxDepth;
+    private final int maxProperties;
+    private final int maxArrayItems;
+    private final int maxBytes;
+
+    /**
+     * @param maxDepth nesting depth of objects and arrays, deeper values are replaced with {@code "<omitted>"}
+     * @param maxProperties properties of an object, the rest is summarized as {@code "...": "n more properties"}
+     * @param maxArrayItems example items of an array
+     * @param maxBytes size of an example, once it's reached the remaining values are omitted
+     */
+    public ExampleLimits(int maxDepth, int maxProperties, int maxArrayItems, int maxBytes)
+    {
+        Validate.isTrue(maxDepth > 0, "max depth must be positive");
+        Validate.isTrue(maxProperties >= 0, "max properties must not be negative");
+        Validate.isTrue(maxArrayItems >= 0, "max array items must not be negative");
+        Validate.isTrue(maxBytes > 0, "max bytes must be positive");
+        this.maxDepth = maxDepth;
+        this.maxProperties = maxProperties;
+        this.maxArrayItems = maxArrayItems;
+        this.maxBytes = maxBytes;
+    }
+
+    public int getMaxDepth()
+    {
+        return maxDepth;
+    }
+
+    public int getMaxProperties()
+    {
+        return maxProperties;
+    }
+
+    public int getMaxArrayItems()
+    {
+        return maxArrayItems;
+    }
+
+    public int getMaxBytes()
+    {
+        return maxBytes;
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        ExampleLimits that = (ExampleLimits) o;
+        return maxDepth == that.maxDepth && maxProperties == that.maxProperties && maxArrayItems == that.maxArrayItems
+                && maxBytes == that.maxBytes;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hash(maxDepth, maxProperties, maxArrayItems, maxBytes);
+    }
+}
@@ -0,0 +1,88 @@
+package org.rakam.client.builder.document;
+
+import org.apache.commons.lang3.Validate;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time limits of rendering a document. The deadline bounds the whole document and starts when the rendering of the
+ * document starts, the operation budget bounds the examples of a single operation.
+ *
+ * The limits are checked while the examples are generated. An operation that runs out of its budget, or runs after
+ * the deadline, is rendered without the example JSON and the language samples, and the definitions that are
+ * rendered after the deadline are rendered without their properties.
+ */
+public class RenderBudget
+{
+    public static final RenderBudget UNLIMITED = new RenderBudget(0, 0);
+
+    private final long deadlineMillis;
+    private final long operationMillis;
+
+    /**
+     * @param deadlineMillis time limit of the document, 0 for no limit
+     * @param operationMillis time limit of the examples of an operation, 0 for no limit
+     */
+    public RenderBudget(long deadlineMillis, long operationMillis)
+    {
+        Validate.isTrue(deadlineMillis >= 0, "deadline must not be negative");
+        Validate.isTrue(operationMillis >= 0, "operation budget must not be negative");
+        this.deadlineMillis = deadlineMillis;
+        this.operationMillis = operationMillis;
+    }
+
+    public long getDeadlineMillis()
+    {
+        return deadlineMillis;
+    }
+
+    public long getOperationMillis()
+    {
+        return operationMillis;
+    }
+
+    /**
+     * Returns the {@link System#nanoTime()} of the document deadline, or {@link Long#MAX_VALUE} if there is none.
+     */
+    long deadline(long startNanos)
+    {
+        return deadlineMillis == 0 ? Long.MAX_VALUE : startNanos + TimeUnit.MILLISECONDS.toNanos(deadlineMillis);
+    }
+
+    /**
+     * Returns the deadline of an operation that starts now, which is never later than the document deadline.
+     */
+    long operationDeadline(long documentDeadline)
+    {
+        if (operationMillis == 0) {
+            return documentDeadline;
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(operationMillis);
+        return documentDeadline != Long.MAX_VALUE && deadline - documentDeadline > 0 ? documentDeadline : deadline;
+    }
+
+    static boolean isExpired(long deadline)
+    {
+        return deadline != Long.MAX_VALUE && System.nanoTime() - deadline > 0;
+    }
+
+    static void check(long deadline)
+    {
+        if (isExpired(deadline)) {
+            throw new ExceededException();
+        }
+    }
+
+    /**
+     * Thrown from the example generation when the budget is exceeded, it doesn't fill in a stack trace since it's
+     * always caught by the renderer.
+     */
+    static class ExceededException
+            extends RuntimeException
+    {
+        ExceededException()
+        {
+            super("render budget exceeded", null, false, false);
+        }
+    }
+}
@@ -0,0 +1,760 @@
+package org.rakam.client.builder.document;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.CaseFormat;
+import com.google.common.base.Throwables;
+import com.google.common.collect.*;
+import io.github.robwin.markup.builder.markdown.MarkdownBuilder;
+import io.swagger.models.*;
+import io.swagger.models.parameters.AbstractSerializableParameter;
+import io.swagger.models.parameters.BodyParameter;
+import io.swagger.models.parameters.FormParameter;
+import io.swagger.models.parameters.Parameter;
+import io.swagger.models.properties.*;
+import org.apache.commons.lang3.StringUtils;
+import org.rakam.client.builder.document.SlateDocumentGenerator.OperationIdentifier;
+import org.rakam.client.language.LanguagePlugin;
+import org.rakam.client.spec.SpecDiff;
+import org.rakam.client.utils.EnumTables;
+import org.rakam.client.utils.ParameterUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static java.lang.String.format;
+import static org.rakam.client.utils.PropertyUtils.getType;
+
+/**
+ * Renders a single Slate document. Instances hold the state of one run and are not thread-safe,
+ * {@link SlateDocumentGenerator} creates a new one for each render.
+ */
+class SlateDocument
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(SlateDocument.class);
+    private static final ObjectMapper mapper = new ObjectMapper();
+    private static final ObjectWriter prettyWriter = mapper.writerWithDefaultPrettyPrinter();
+    private static final String TERMS_OF_SERVICE = "Terms of service: ";
+    private static final String URI_SCHEME = "URI scheme";
+    private static final String HOST = "Host: ";
+    private static final String BASE_PATH = "BasePath: ";
+    private static final String SCHEMES = "Schemes: ";
+    private static final String OMITTED = "\"<omitted>\"";
+    private SlateMarkdownBuilder markdownBuilder;
+    private final List<LanguagePlugin> languages;
+    private final Swagger swagger;
+    private final Set<String> definitions;
+    private final Map<OperationIdentifier, Map<String, String>> templates;
+    private final ExampleLimits limits;
+    private final RenderBudget budget;
+    private final long deadline;
+    private final EnumTables enumTables;
+    private final List<String> degradedOperations;
+    private final TagPaths tagPaths;
+    private long operationDeadline = Long.MAX_VALUE;
+
+    /**
+     * @param deadline the {@link System#nanoTime()} of the document deadline of the budget
+     */
+    SlateDocument(Swagger swagger, List<LanguagePlugin> languages, Map<OperationIdentifier, Map<String, String>> templates,
+            ExampleLimits limits, EnumTables enumTables, RenderBudget budget, long deadline)
+    {
+        this(swagger, languages, templates, limits, enumTables, budget, deadline, null);
+    }
+
+    /**
+     * @param tagPaths supplies the paths of each tag right before its section is rendered, all the paths of the
+     * spec are searched for the operations of the tag if null
+     */
+    SlateDocument(Swagger swagger, List<LanguagePlugin> languages, Map<OperationIdentifier, Map<String, String>> templates,
+            ExampleLimits limits, EnumTables enumTables, RenderBudget budget, long deadline, TagPaths tagPaths)
+    {
+        this.swagger = swagger;
+        this.languages = languages;
+        this.templates = templates;
+        this.limits = limits;
+        this.enumTables = enumTables;
+        this.budget = budget;
+        this.deadline = deadline;
+        markdownBuilder = new SlateMarkdownBuilder();
+        definitions = new HashSet<>();
+        degradedOperations = new ArrayList<>();
+        this.tagPaths = tagPaths;
+    }
+
+    MarkdownBuilder build()
+            throws IOException
+    {
+        buildHeader();
+        buildIntroduction();
+        if (!swagger.getTags().isEmpty()) {
+            for (Tag tag : swagger.getTags()) {
+                buildTag(tag);
+            }
+            markdownBuilder.newLine();
+        }
+        new DefinitionsDocument(swagger, markdownBuilder, enumTables, deadline).process(definitions);
+        buildEnumTables();
+        reportDegradedOperations();
+        return markdownBuilder;
+    }
+
+    /**
+     * Renders the sections of the given tags separately so that they can be assembled with {@link #build(List)}.
+     */
+    SlateFragment buildFragment(Collection<String> tags)
+    {
+        Map<String, String> sections = new LinkedHashMap<>();
+        for (Tag tag : swagger.getTags()) {
+            if (tags.contains(tag.getName())) {
+                markdownBuilder = new SlateMarkdownBuilder();
+                buildTag(tag);
+                sections.put(tag.getName(), markdownBuilder.toString());
+            }
+        }
+        reportDegradedOperations();
+        return new SlateFragment(sections, definitions, enumTables.getTables(), enumTables.getThreshold(), limits);
+    }
+
+    /**
+     * Assembles the fragments in tag order and renders the definitions referenced by any of them.
+     */
+    MarkdownBuilder build(List<SlateFragment> fragments)
+            throws IOException
+    {
+        buildHeader();
+        buildIntroduction();
+        if (!swagger.getTags().isEmpty()) {
+            for (Tag tag : swagger.getTags()) {
+                String section = fragments.stream()
+                        .map(fragment -> fragment.getSections().get(tag.getName()))
+                        .filter(Objects::nonNull)
+                        .findFirst()
+                        .orElseThrow(() -> new IllegalArgumentException(format("None of the fragments contain tag %s", tag.getName())));
+                markdownBuilder.text(section);
+            }
+            markdownBuilder.newLine();
+        }
+        fragments.forEach(fragment -> definitions.addAll(fragment.getDefinitions()));
+        fragments.forEach(fragment -> enumTables.addAll(fragment.getEnumTables()));
+        new DefinitionsDocument(swagger, markdownBuilder, enumTables, deadline).process(definitions);
+        buildEnumTables();
+        return markdownBuilder;
+    }
+
+    /**
+     * Renders the changes from the previous version of the spec. Added and modified operations and definitions are
+     * rendered as in the document, removed ones are only listed.
+     */
+    MarkdownBuilder buildChangelog(SpecDiff diff, Swagger previous)
+            throws IOException
+    {
+        markdownBuilder.documentTitle("Changelog");
+        String previousVersion = previous.getInfo() == null ? null : previous.getInfo().getVersion();
+        String version = swagger.getInfo() == null ? null : swagger.getInfo().getVersion();
+        if (StringUtils.isNotBlank(previousVersion) && StringUtils.isNotBlank(version) && !previousVersion.equals(version)) {
+            markdownBuilder.textLine(format("Changes from version %s to %s.", previousVersion, version)).newLine();
+        }
+        if (diff.isEmpty()) {
+            markdownBuilder.paragraph("No changes.");
+            return markdownBuilder;
+        }
+
+        Map<OperationIdentifier, Operation> operations = SpecDiff.operations(swagger);
+        if (!diff.getAddedOperations().isEmpty()) {
+            markdownBuilder.documentTitle("Added operations");
+            diff.getAddedOperations().forEach(id -> processOperation(id.path, id.httpMethod, operations.get(id)));
+        }
+        if (!diff.getModifiedOperations().isEmpty()) {
+            markdownBuilder.documentTitle("Modified operations");
+            diff.getModifiedOperations().forEach(id -> processOperation(id.path, id.httpMethod, operations.get(id)));
+        }
+        if (!diff.getRemovedOperations().isEmpty()) {
+            Map<OperationIdentifier, Operation> previousOperations = SpecDiff.operations(previous);
+            markdownBuilder.documentTitle("Removed operations");
+            markdownBuilder.tableHeader("Method", "Path", "Summary");
+            for (OperationIdentifier id : diff.getRemovedOperations()) {
+                markdownBuilder.cell(id.httpMethod).cell("`" + id.path + "`")
+                        .cell(previousOperations.get(id).getSummary()).endRow();
+            }
+            markdownBuilder.endTable();
+        }
+
+        Set<String> changedDefinitions = new TreeSet<>(diff.getAddedDefinitions());
+        changedDefinitions.addAll(diff.getModifiedDefinitions());
+        if (!changedDefinitions.isEmpty() || !diff.getRemovedDefinitions().isEmpty()) {
+            markdownBuilder.documentTitle("Definition changes");
+            markdownBuilder.tableHeader("Definition", "Change");
+            diff.getAddedDefinitions().forEach(name -> markdownBuilder.cell(name).cell("added").endRow());
+            diff.getModifiedDefinitions().forEach(name -> markdownBuilder.cell(name).cell("modified").endRow());
+            diff.getRemovedDefinitions().forEach(name -> markdownBuilder.cell(name).cell("removed").endRow());
+            markdownBuilder.endTable();
+        }
+        if (!changedDefinitions.isEmpty()) {
+            new DefinitionsDocument(swagger, markdownBuilder, enumTables, deadline).process(changedDefinitions);
+        }
+        buildEnumTables();
+        reportDegradedOperations();
+        return markdownBuilder;
+    }
+
+    /**
+     * Renders the values of the large enums that are linked from the tables.
+     */
+    private void buildEnumTables()
+    {
+        Map<String, List<String>> tables = enumTables.getTables();
+        if (tables.isEmpty()) {
+            return;
+        }
+        markdownBuilder.sectionTitleLevel1("Enums");
+        for (Map.Entry<String, List<String>> table : tables.entrySet()) {
+            markdownBuilder.sectionTitleLevel2(table.getKey());
+            markdownBuilder.tableHeader("value");
+            table.getValue().forEach(value -> markdownBuilder.cell(value).endRow());
+            markdownBuilder.endTable();
+        }
+    }
+
+    private void reportDegradedOperations()
+    {
+        if (!degradedOperations.isEmpty()) {
+            LOGGER.warn("{} operations exceeded the render budget and were rendered without examples: {}",
+                    degradedOperations.size(), String.join(", ", degradedOperations));
+        }
+    }
+
+    private void buildHeader()
+    {
+        markdownBuilder.textLine("---");
+        markdownBuilder.textLine("title: API Reference");
+        markdownBuilder.textLine("language_tabs:");
+        markdownBuilder.textLine("  - shell");
+        languages.forEach(lang -> markdownBuilder.textLine("  - " + lang.getTab()));
+
+        markdownBuilder.textLine("toc_footers:");
+        markdownBuilder.textLine(" - <a href='#'>Sign Up for a Developer Key</a>");
+
+        markdownBuilder.textLine("includes:").textLine("    - errors");
+        markdownBuilder.textLine("search: true");
+        markdownBuilder.textLine("---");
+    }
+
+    private void buildIntroduction()
+    {
+        Info info = swagger.getInfo();
+
+        markdownBuilder.documentTitle("Introduction");
+
+        markdownBuilder.listing("We have language bindings in " +
+                languages.stream().map(LanguagePlugin::getDisplayName).collect(Collectors.joining(", "))
+                + "! You can view code examples in the dark area to the right, and you can switch the programming language of the examples with the tabs in the top right.");
+
+        if (info.getDescription() != null) {
+            markdownBuilder.textLine(info.getDescription());
+            markdownBuilder.newLine();
+        }
+
+        if (StringUtils.isNotBlank(info.getVersion())) {
+            markdownBuilder.sectionTitleLevel2("Version");
+            markdownBuilder.textLine("Version: " + info.getVersion());
+            markdownBuilder.newLine();
+        }
+
+        Contact contact = info.getContact();
+        if (contact != null) {
+            markdownBuilder.sectionTitleLevel1("Contact Information");
+            if (StringUtils.isNotBlank(contact.getName())) {
+                markdownBuilder.textLine("Contact: " + contact.getName());
+            }
+            if (StringUtils.isNotBlank(contact.getEmail())) {
+                markdownBuilder.textLine("Email: " + contact.getEmail());
+            }
+            markdownBuilder.newLine();
+        }
+
+        License license = info.getLicense();
+        if (license != null && (StringUtils.isNotBlank(license.getName()) || StringUtils.isNotBlank(license.getUrl()))) {
+            markdownBuilder.sectionTitleLevel2("License");
+            if (StringUtils.isNotBlank(license.getName())) {
+                markdownBuilder.textLine("License: " + license.getName()).newLine();
+            }
+            if (StringUtils.isNotBlank(license.getUrl())) {
+                markdownBuilder.textLine("License url: " + license.getUrl());
+            }
+            markdownBuilder.newLine();
+        }
+
+        if (StringUtils.isNotBlank(info.getTermsOfService())) {
+            markdownBuilder.textLine(TERMS_OF_SERVICE + info.getTermsOfService());
+            markdownBuilder.newLine();
+        }
+
+        if (StringUtils.isNotBlank(swagger.getHost()) || StringUtils.isNotBlank(swagger.getBasePath())) {
+            markdownBuilder.sectionTitleLevel2(URI_SCHEME);
+            if (StringUtils.isNotBlank(swagger.getHost())) {
+                markdownBuilder.textLine(HOST + swagger.getHost());
+            }
+            if (StringUtils.isNotBlank(swagger.getBasePath())) {
+                markdownBuilder.textLine(BASE_PATH + swagger.getBasePath());
+            }
+            if (swagger.getSchemes() != null && !swagger.getSchemes().isEmpty()) {
+                List<String> schemes = swagger.getSchemes().stream().map(Scheme::toString).collect(Collectors.toList());
+                markdownBuilder.textLine(SCHEMES + StringUtils.join(schemes, ", "));
+            }
+            markdownBuilder.newLine();
+        }
+    }
+
+    private void buildTag(Tag tag)
+    {
+        String name = tag.getName();
+        String description = tag.getDescription();
+        markdownBuilder.documentTitle(CaseFormat.UPPER_UNDERSCORE.to(CaseFormat.UPPER_CAMEL, name.replaceAll("-", " "))).newLine().textLine(description).newLine();
+        if (tagPaths == null) {
+            processOperation(name, swagger.getPaths());
+            return;
+        }
+        try {
+            processOperation(name, tagPaths.open(name));
+        }
+        finally {
+            tagPaths.close(name);
+        }
+    }
+
+    @VisibleForTesting
+    void processOperation(String path, String method, Operation operation)
+    {
+        try {
+            markdownBuilder.sectionTitleLevel1(operation.getSummary());
+
+            // the examples are generated before any of them is written, so that the operation can be rendered
+            // without them if they exceed the budget
+            String curl;
+            String responseExample;
+            operationDeadline = budget.operationDeadline(deadline);
+            try {
+                RenderBudget.check(operationDeadline);
+                curl = curlExample(path, method, operation);
+                responseExample = responseExample(operation);
+            }
+            catch (RenderBudget.ExceededException e) {
+                degradedOperations.add(method.toUpperCase(Locale.ENGLISH) + " " + path);
+                curl = null;
+                responseExample = null;
+            }
+            finally {
+                operationDeadline = Long.MAX_VALUE;
+            }
+
+            if (curl == null) {
+                markdownBuilder.textLine("> The examples of this operation are omitted because they exceeded the render budget.").newLine();
+            }
+            else {
+                markdownBuilder.source(curl, "shell");
+                for (Map.Entry<String, String> entry : templates.getOrDefault(new OperationIdentifier(path, method), ImmutableMap.of()).entrySet()) {
+                    markdownBuilder.source(entry.getValue(), entry.getKey());
+                }
+                if (responseExample != null) {
+                    markdownBuilder.textLine("> The above command returns JSON structured like this:").newLine();
+                    markdownBuilder.source(responseExample, "json");
+                }
+            }
+
+            markdownBuilder.sectionTitleLevel2("HTTP Request").textLine("`" + method + " " + path + "`");
+
+            renderParameters(operation.getParameters(), markdownBuilder);
+
+            markdownBuilder.sectionTitleLevel2("Responses for status codes");
+            markdownBuilder.tableHeader(operation.getResponses().keySet());
+            for (Response statusResponse : operation.getResponses().values()) {
+                // some responses can be null
+                if (statusResponse.getSchema() != null) {
+                    markdownBuilder.cell(getType(statusResponse.getSchema(), definitions, enumTables));
+                }
+            }
+            markdownBuilder.endRow().endTable();
+
+            String description = trimNullableText(operation.getDescription());
+            if (!description.isEmpty()) {
+                markdownBuilder.paragraph(description);
+            }
+        }
+        catch (Exception e) {
+            LOGGER.error(format("An error occurred while processing operation. %s %s. Skipping..",
+                    method.toUpperCase(Locale.ENGLISH), path), e);
+        }
+    }
+
+    private String curlExample(String path, String method, Operation operation)
+    {
+        StringBuilder builder = new StringBuilder();
+        builder.append("curl ").append('"').append(swagger.getHost() == null ? "" : swagger.getHost()).append(path).append('"');
+        if (operation.getSecurity() != null) {
+            for (Map<String, List<String>> map : operation.getSecurity()) {
+                for (Map.Entry<String, List<String>> entry : map.entrySet()) {
+                    builder.append(" -H \"").append(entry.getKey()).append(": my").append(entry.getKey()).append('"');
+                }
+            }
+        }
+
+        builder.append(" -X ").append(method);
+        if(operation.getParameters().stream().anyMatch(p -> p instanceof FormParameter || p instanceof BodyParameter)) {
+            builder.append(" -d @- << EOF \n").append(toExampleJsonParameters(operation)).append("\nEOF");
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Returns the example JSON of the 200 response, or null if the operation doesn't have one.
+     */
+    private String responseExample(Operation operation)
+            throws IOException
+    {
+        // TODO: response object also have example property
+        Response response = operation.getResponses().get("200");
+        if (response == null) {
+            return null;
+        }
+        Object example = response.getSchema().getExample();
+        if (example != null) {
+            return example.toString();
+        }
+        String value = getValue(response.getSchema());
+        return prettyWriter.writeValueAsString(mapper.readValue(value, Object.class));
+    }
+
+    private void renderParameters(List<Parameter> _parameters, SlateMarkdownBuilder markdownBuilder) {
+        Multimap<ParameterIn, Parameter> parameterGroups = LinkedListMultimap.create();
+
+        if (_parameters == null || _parameters.isEmpty()) {
+            return;
+        }
+
+        _parameters.forEach(p -> {
+            ParameterIn parameterIn;
+            try {
+                parameterIn = ParameterIn.valueOf(p.getIn().toUpperCase(Locale.ENGLISH));
+            } catch (IllegalArgumentException e) {
+                throw new UnsupportedOperationException(format("Parameter type '%s' not supported yet.",
+                        p.getIn()));
+            }
+
+            parameterGroups.put(parameterIn, p);
+        });
+
+        parameterGroups.keySet().forEach(key -> {
+            markdownBuilder.sectionTitleLevel2(key.getQuery() + " Parameters");
+            markdownBuilder.tableHeader("Parameter", "Required", "Type", "Description");
+            parameterGroups.get(key).forEach(p -> renderParameter(key, p, markdownBuilder));
+            markdownBuilder.endTable();
+        });
+    }
+
+    private void renderParameter(ParameterIn parameterIn, Parameter p, SlateMarkdownBuilder markdownBuilder) {
+        if (parameterIn.equals(ParameterIn.BODY)) {
+            Model schema = ((BodyParameter) p).getSchema();
+            if (schema instanceof RefModel) {
+                schema = swagger.getDefinitions().get(((RefModel) schema).getSimpleRef());
+            }
+
+            Map<String, Property> properties;
+            if (schema instanceof ArrayModel) {
+                Property items = ((ArrayModel) schema).getItems();
+                properties = ImmutableMap.of("array", items);
+            } else {
+                properties = schema.getProperties();
+            }
+            for (Map.Entry<String, Property> entry : properties.entrySet()) {
+                markdownBuilder.cell(entry.getKey())
+                        .cell(entry.getValue().getRequired())
+                        .cell(getType(entry.getValue(), definitions, enumTables))
+                        .cell(trimNullableText(entry.getValue().getDescription()))
+                        .endRow();
+            }
+        } else {
+            markdownBuilder.cell(p.getName())
+                    .cell(p.getRequired())
+                    .cell(ParameterUtils.getType(p, definitions, enumTables))
+                    .cell(trimNullableText(p.getDescription()))
+                    .endRow();
+        }
+    }
+
+    private String toExampleJsonParameters(Map<String, Property> properties)
+    {
+        StringBuilder builder = new StringBuilder();
+        appendObject(builder, properties, null, 1);
+        return builder.toString();
+    }
+
+    private String toExampleJsonParameters(Operation operation)
+    {
+        if (operation.getParameters().size() == 1 && operation.getParameters().get(0).getIn().equals("body")) {
+            Model model = ((BodyParameter) operation.getParameters().get(0)).getSchema();
+
+            Map<String, Property> properties;
+            if (model.getReference() != null) {
+                String prefix = "#/definitions/";
+                if (model.getReference().startsWith(prefix)) {
+                    Model model1 = swagger.getDefinitions().get(model.getReference().substring(prefix.length()));
+                    if (model1 instanceof ArrayModel) {
+                        return prettyJson("[" + getValue(((ArrayModel) model1).getItems()) + "]");
+                    }
+                    properties = model1.getProperties();
+                }
+                else {
+                    throw new IllegalStateException();
+                }
+            }
+            else {
+                properties = model.getProperties();
+            }
+            return prettyJson(toExampleJsonParameters(properties));
+        }
+
+        StringBuilder builder = new StringBuilder().append('{');
+        boolean first = true;
+        for (Parameter parameter : operation.getParameters()) {
+            if (parameter instanceof FormParameter) {
+                if (!first) {
+                    builder.append(", ");
+                }
+                first = false;
+                builder.append('"').append(parameter.getName()).append("\" : ");
+                appendValue(builder, (AbstractSerializableParameter) parameter);
+            }
+        }
+        return prettyJson(builder.append('}').toString());
+    }
+
+    private static String prettyJson(String json)
+    {
+        try {
+            return prettyWriter.writeValueAsString(mapper.readValue(json, Object.class));
+        }
+        catch (IOException e) {
+            throw new IllegalStateException("Example generator couldn't generate a valid JSON");
+        }
+    }
+
+    @VisibleForTesting
+    String getValue(Property value)
+    {
+        StringBuilder builder = new StringBuilder();
+        appendValue(builder, value, null, 0);
+        return builder.toString();
+    }
+
+    /**
+     * Appends the example value of the property. The examples of nested properties are appended to the same builder
+     * instead of being concatenated level by level, which also lets the limits be checked against the size of the
+     * whole example.
+     *
+     * @param depth the number of objects and arrays that contain the value
+     */
+    private void appendValue(StringBuilder builder, Property value, Property parent, int depth)
+    {
+        RenderBudget.check(operationDeadline);
+        if (builder.length() >= limits.getMaxBytes()) {
+            builder.append(OMITTED);
+        }
+        else if (value.getExample() != null) {
+            builder.append(value.getExample());
+        }
+        else if (value instanceof StringProperty) {
+            List<String> anEnum = ((StringProperty) value).getEnum();
+            if (anEnum != null && !anEnum.isEmpty()) {
+                try {
+                    builder.append(mapper.writeValueAsString(anEnum.get(0)));
+                }
+                catch (JsonProcessingException e) {
+                    throw Throwables.propagate(e);
+                }
+            }
+            else {
+                builder.append("\"str\"");
+            }
+        }
+        else if (value instanceof IntegerProperty || value instanceof LongProperty) {
+            builder.append('1');
+        }
+        else if (value instanceof DoubleProperty) {
+            builder.append("1.0");
+        }
+        else if (value instanceof DateProperty) {
+            builder.append("\"2015-01-20\"");
+        }
+        else if (value instanceof BooleanProperty) {
+            builder.append("true");
+        }
+        else if (value instanceof MapProperty) {
+            builder.append("{\"prop\": {}}");
+        }
+        else if (value instanceof RefProperty) {
+            Model model = swagger.getDefinitions().get(((RefProperty) value).getSimpleRef());
+            if (depth >= limits.getMaxDepth()) {
+                builder.append(OMITTED);
+            }
+            else if (model == null || model.getProperties() == null) {
+                builder.append("{}");
+            }
+            else {
+                appendObject(builder, model.getProperties(), parent, depth + 1);
+            }
+        }
+        else if (value instanceof ArrayProperty) {
+            if (parent != null && parent.equals(value)) {
+                builder.append("[]");
+            } else {
+                appendArray(builder, ((ArrayProperty) value).getItems(), value, depth);
+            }
+        }
+        else if (value instanceof ObjectProperty) {
+            builder.append("\"object\"");
+        }
+        else if (value instanceof DateTimeProperty) {
+            builder.append("\"2016-03-03T10:15:30.00Z\"");
+        }
+        else if (value instanceof UUIDProperty) {
+            builder.append("\"4f884c73-7d2d-4c70-9e16-9685bda4263a\"");
+        }
+        else {
+            throw new IllegalStateException("Value " + value + " is not supported.");
+        }
+    }
+
+    private void appendObject(StringBuilder builder, Map<String, Property> properties, Property parent, int depth)
+    {
+        builder.append('{');
+        int count = 0;
+        for (Map.Entry<String, Property> entry : properties.entrySet()) {
+            if (count > 0) {
+                builder.append(", ");
+            }
+            if (count == limits.getMaxProperties() || builder.length() >= limits.getMaxBytes()) {
+                builder.append("\"...\" : \"").append(properties.size() - count).append(" more properties\"");
+                break;
+            }
+            builder.append('"').append(entry.getKey()).append("\" : ");
+            appendValue(builder, entry.getValue(), parent, depth);
+            count++;
+        }
+        builder.append('}');
+    }
+
+    private void appendArray(StringBuilder builder, Property items, Property parent, int depth)
+    {
+        if (depth >= limits.getMaxDepth()) {
+            builder.append(OMITTED);
+            return;
+        }
+        builder.append('[');
+        for (int i = 0; i < limits.getMaxArrayItems(); i++) {
+            builder.append(i == 0 ? "\n\t" : ",\n\t");
+            appendValue(builder, items, parent, depth + 1);
+        }
+        builder.append(limits.getMaxArrayItems() == 0 ? "]" : "\n]");
+    }
+
+    private void appendValue(StringBuilder builder, AbstractSerializableParameter value)
+    {
+        switch (value.getType()) {
+            case "date":
+                builder.append("\"2015-01-20\"");
+                break;
+            case "string":
+                builder.append("\"str\"");
+                break;
+            case "integer":
+            case "long":
+                builder.append('0');
+                break;
+            case "double":
+                builder.append("0.0");
+                break;
+            case "boolean":
+                builder.append("false");
+                break;
+            case "map":
+                builder.append("{\"prop\": value}");
+                break;
+            case "array":
+                appendArray(builder, value.getItems(), null, 0);
+                break;
+            default:
+        }
+    }
+
+    private String trimNullableText(String text)
+    {
+        if (text == null || text.equals("null")) {
+            return "";
+        }
+        return text.trim();
+    }
+
+    private enum ParameterIn
+    {
+        PATH("Path"), BODY("Body"), HEADER("Header"), FORMDATA("Form"), QUERY("Query");
+
+        private final String query;
+
+        ParameterIn(String query)
+        {
+            this.query = query;
+        }
+
+        public String getQuery()
+        {
+            return query;
+        }
+    }
+
+    private void processOperation(String tag, Map<String, Path> paths)
+    {
+
+        for (Map.Entry<String, Path> entry : paths.entrySet()) {
+
+            Path value = entry.getValue();
+            if (value.getGet() != null && value.getGet().getTags().contains(tag)) {
+                processOperation(entry.getKey(), "GET", value.getGet());
+            }
+            if (value.getPut() != null && value.getPut().getTags().contains(tag)) {
+                processOperation(entry.getKey(), "PUT", value.getPut());
+            }
+            if (value.getPost() != null && value.getPost().getTags().contains(tag)) {
+                processOperation(entry.getKey(), "POST", value.getPost());
+            }
+            if (value.getDelete() != null && value.getDelete().getTags().contains(tag)) {
+                processOperation(entry.getKey(), "DELETE", value.getDelete());
+            }
+            if (value.getPatch() != null && value.getPatch().getTags().contains(tag)) {
+                processOperation(entry.getKey(), "PATH", value.getPatch());
+            }
+            if (value.getOptions() != null && value.getOptions().getTags().contains(tag)) {
+                processOperation(entry.getKey(), "OPTIONS", value.getOptions());
+            }
+        }
+    }
+
+    /**
+     * Supplies the paths of the tags that are rendered one by one.
+     */
+    interface TagPaths
+    {
+        /**
+         * Returns the paths that have operations with the given tag, in the order of the spec. The paths and their
+         * samples must stay available until the tag is closed.
+         */
+        Map<String, Path> open(String tag);
+
+        void close(String tag);
+    }
+}
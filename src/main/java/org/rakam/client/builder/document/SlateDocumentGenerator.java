@@ -1,28 +1,45 @@
 package org.rakam.client.builder.document;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.SerializationFeature;
-import com.google.common.base.CaseFormat;
-import com.google.common.base.Throwables;
-import com.google.common.collect.*;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.io.Resources;
 import com.samskivert.mustache.Mustache;
 import com.samskivert.mustache.Template;
 import io.github.robwin.markup.builder.markdown.MarkdownBuilder;
+import io.swagger.codegen.CliOption;
 import io.swagger.codegen.ClientOptInput;
+import io.swagger.codegen.ClientOpts;
 import io.swagger.codegen.CodegenConfig;
+import io.swagger.codegen.CodegenConstants;
 import io.swagger.codegen.CodegenOperation;
 import io.swagger.codegen.DefaultGenerator;
+import io.swagger.codegen.auth.AuthParser;
 import io.swagger.codegen.config.CodegenConfigurator;
-import io.swagger.models.*;
-import io.swagger.models.parameters.AbstractSerializableParameter;
-import io.swagger.models.parameters.BodyParameter;
-import io.swagger.models.parameters.FormParameter;
-import io.swagger.models.parameters.Parameter;
-import io.swagger.models.properties.*;
-import org.apache.commons.lang3.StringUtils;
-import org.rakam.client.utils.ParameterUtils;
+import io.swagger.models.Operation;
+import io.swagger.models.Path;
+import io.swagger.models.Swagger;
+import io.swagger.models.Tag;
+import io.swagger.models.auth.AuthorizationValue;
+import io.swagger.parser.Swagger20Parser;
+import io.swagger.parser.SwaggerParser;
+import io.swagger.util.Json;
+import io.swagger.util.Yaml;
+import org.apache.commons.lang3.Validate;
+import org.rakam.client.language.LanguagePlugin;
+import org.rakam.client.language.LanguagePlugins;
+import org.rakam.client.spec.ExternalRefResolver;
+import org.rakam.client.spec.LazySwaggerLoader;
+import org.rakam.client.spec.SpecDiff;
+import org.rakam.client.spec.SpecValidator;
+import org.rakam.client.spec.SwaggerDeduplicator;
+import org.rakam.client.template.ExampleRenderer;
+import org.rakam.client.template.ExampleRenderers;
+import org.rakam.client.utils.EnumTables;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -30,499 +47,592 @@ import java.io.File;
 import java.io.IOException;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
-import java.util.*;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
-import static com.google.common.collect.Lists.newArrayList;
 import static java.lang.String.format;
-import static org.rakam.client.utils.PropertyUtils.getType;
-
+import static org.apache.commons.lang3.StringUtils.isNotEmpty;
+
+/**
+ * Generates Slate documents for the configured languages.
+ *
+ * The codegen configs and the compiled example templates are prepared once in the constructor and only read
+ * afterwards, so a single instance can be shared and used to render any number of specs concurrently.
+ * The state of each render lives in its own {@link SlateDocument}.
+ */
 public class SlateDocumentGenerator
 {
     private static final Logger LOGGER = LoggerFactory.getLogger(SlateDocumentGenerator.class);
-    private static final List supportedLanguages = ImmutableList.builder()
-            .add("java")
-            .add("python")
-            .add("php")
-            .build();
-    private static final ObjectMapper mapper = new ObjectMapper();
-    private static final String TERMS_OF_SERVICE = "Terms of service: ";
-    private static final String URI_SCHEME = "URI scheme";
-    private static final String HOST = "Host: ";
-    private static final String BASE_PATH = "BasePath: ";
-    private static final String SCHEMES = "Schemes: ";
-    private final MarkdownBuilder markdownBuilder;
-    private final List<CodegenConfigurator> configurators;
-    private Swagger swagger;
-    private Set<String> definitions;
+    private static final int PATHS_PER_CHUNK = 64;
 
-    private Map<OperationIdentifier, Map<String, String>> templates;
+    private final List<CodegenConfigurator> configurators;
+    private final List<ExampleLanguage> languages;
+    private final ExampleLimits limits;
+    private final RenderBudget budget;
+    private final int enumTableThreshold;
+    private final boolean validate;
 
     public SlateDocumentGenerator(ImmutableList<CodegenConfigurator> configurators)
+            throws IOException
     {
-        this.configurators = configurators;
-        markdownBuilder = new MarkdownBuilder();
-        definitions = new HashSet<>();
+        this(configurators, ExampleLimits.DEFAULT);
     }
 
-    public MarkdownBuilder build()
+    public SlateDocumentGenerator(ImmutableList<CodegenConfigurator> configurators, ExampleLimits limits)
             throws IOException
     {
-        markdownBuilder.textLine("---");
-        markdownBuilder.textLine("title: API Reference");
-        markdownBuilder.textLine("language_tabs:");
-        markdownBuilder.textLine("  - shell");
-        configurators.stream().map(c -> c.getLang()).forEach(lang -> markdownBuilder.textLine("  - " + lang));
-
-        markdownBuilder.textLine("toc_footers:");
-        markdownBuilder.textLine(" - <a href='#'>Sign Up for a Developer Key</a>");
-
-        markdownBuilder.textLine("includes:").textLine("    - errors");
-        markdownBuilder.textLine("search: true");
-        markdownBuilder.textLine("---");
-
-        this.templates = generateExampleUsages();
-        buildSlateDocument();
-        new DefinitionsDocument(this.swagger, markdownBuilder).process(definitions);
-        return markdownBuilder;
+        this(configurators, limits, RenderBudget.UNLIMITED);
     }
 
-    private void buildSlateDocument()
+    public SlateDocumentGenerator(ImmutableList<CodegenConfigurator> configurators, ExampleLimits limits, RenderBudget budget)
+            throws IOException
     {
-        Info info = swagger.getInfo();
+        this(configurators, limits, budget, EnumTables.DEFAULT_THRESHOLD);
+    }
 
-        markdownBuilder.documentTitle("Introduction");
+    /**
+     * @param enumTableThreshold the number of values above which an enum is rendered once as its own section instead
+     * of inline, 0 to render all the enums inline
+     */
+    public SlateDocumentGenerator(ImmutableList<CodegenConfigurator> configurators, ExampleLimits limits, RenderBudget budget,
+            int enumTableThreshold)
+            throws IOException
+    {
+        this(configurators, limits, budget, enumTableThreshold, true);
+    }
 
-        markdownBuilder.listing("We have language bindings in " +
-                configurators.stream().map(c -> c.getLang()).collect(Collectors.joining(", "))
-                + "! You can view code examples in the dark area to the right, and you can switch the programming language of the examples with the tabs in the top right.");
+    /**
+     * @param validate whether the specs are checked with {@link SpecValidator} before they're rendered, otherwise
+     * the operations that can't be rendered are skipped
+     */
+    public SlateDocumentGenerator(ImmutableList<CodegenConfigurator> configurators, ExampleLimits limits, RenderBudget budget,
+            int enumTableThreshold, boolean validate)
+            throws IOException
+    {
+        this.configurators = configurators;
+        this.limits = limits;
+        this.budget = budget;
+        this.enumTableThreshold = enumTableThreshold;
+        this.validate = validate;
 
-        if (info.getDescription() != null) {
-            markdownBuilder.textLine(info.getDescription());
-            markdownBuilder.newLine();
+        ImmutableList.Builder<ExampleLanguage> languages = ImmutableList.builder();
+        for (CodegenConfigurator configurator : configurators) {
+            Validate.notEmpty(configurator.getLang(), "language must be specified");
+            languages.add(new ExampleLanguage(LanguagePlugins.get(configurator.getLang()), configurator));
         }
+        this.languages = languages.build();
+    }
 
-        if (StringUtils.isNotBlank(info.getVersion())) {
-            markdownBuilder.sectionTitleLevel2("Version");
-            markdownBuilder.textLine("Version: " + info.getVersion());
-            markdownBuilder.newLine();
-        }
+    /**
+     * Reads the input spec of the configurators and renders it.
+     */
+    public MarkdownBuilder build()
+            throws IOException
+    {
+        Validate.notEmpty(configurators, "at least one language must be specified");
+        CodegenConfigurator configurator = configurators.get(0);
+        return render(readSwagger(configurator.getInputSpec(), configurator.getAuth()));
+    }
 
-        Contact contact = info.getContact();
-        if (contact != null) {
-            markdownBuilder.sectionTitleLevel1("Contact Information");
-            if (StringUtils.isNotBlank(contact.getName())) {
-                markdownBuilder.textLine("Contact: " + contact.getName());
-            }
-            if (StringUtils.isNotBlank(contact.getEmail())) {
-                markdownBuilder.textLine("Email: " + contact.getEmail());
-            }
-            markdownBuilder.newLine();
-        }
+    public MarkdownBuilder render(Swagger swagger)
+            throws IOException
+    {
+        validate(swagger, swagger.getPaths());
+        long deadline = budget.deadline(System.nanoTime());
+        if (LazySwaggerLoader.isLazy(swagger.getPaths())) {
+            List<String> tags = swagger.getTags().stream().map(Tag::getName).collect(Collectors.toList());
+            Map<OperationIdentifier, Map<String, String>> templates = new HashMap<>();
+            return new SlateDocument(swagger, getPlugins(), templates, limits, new EnumTables(enumTableThreshold), budget, deadline,
+                    new LazyTagPaths(swagger, tags, templates, deadline)).build();
+        }
+        return new SlateDocument(swagger, getPlugins(), generateExampleUsages(swagger, swagger.getPaths(), deadline), limits,
+                new EnumTables(enumTableThreshold), budget, deadline).build();
+    }
 
-        License license = info.getLicense();
-        if (license != null && (StringUtils.isNotBlank(license.getName()) || StringUtils.isNotBlank(license.getUrl()))) {
-            markdownBuilder.sectionTitleLevel2("License");
-            if (StringUtils.isNotBlank(license.getName())) {
-                markdownBuilder.textLine("License: " + license.getName()).newLine();
-            }
-            if (StringUtils.isNotBlank(license.getUrl())) {
-                markdownBuilder.textLine("License url: " + license.getUrl());
+    /**
+     * Renders only the sections of the given tags. The code generation also runs only for the paths that have
+     * operations with these tags.
+     */
+    public SlateFragment renderFragment(Swagger swagger, Collection<String> tags)
+    {
+        Map<String, Path> paths = new LinkedHashMap<>();
+        for (Map.Entry<String, Path> entry : swagger.getPaths().entrySet()) {
+            if (entry.getValue().getOperations().stream().anyMatch(operation -> hasAnyTag(operation, tags))) {
+                paths.put(entry.getKey(), entry.getValue());
             }
-            markdownBuilder.newLine();
         }
-
-        if (StringUtils.isNotBlank(info.getTermsOfService())) {
-            markdownBuilder.textLine(TERMS_OF_SERVICE + info.getTermsOfService());
-            markdownBuilder.newLine();
+        validate(swagger, paths);
+        long deadline = budget.deadline(System.nanoTime());
+        if (LazySwaggerLoader.isLazy(swagger.getPaths())) {
+            Map<OperationIdentifier, Map<String, String>> templates = new HashMap<>();
+            return new SlateDocument(swagger, getPlugins(), templates, limits, new EnumTables(enumTableThreshold), budget, deadline,
+                    new LazyTagPaths(swagger, tags, templates, deadline)).buildFragment(tags);
         }
+        return new SlateDocument(swagger, getPlugins(), generateExampleUsages(swagger, paths, deadline), limits,
+                new EnumTables(enumTableThreshold), budget, deadline).buildFragment(tags);
+    }
 
-        if (StringUtils.isNotBlank(swagger.getHost()) || StringUtils.isNotBlank(swagger.getBasePath())) {
-            markdownBuilder.sectionTitleLevel2(URI_SCHEME);
-            if (StringUtils.isNotBlank(swagger.getHost())) {
-                markdownBuilder.textLine(HOST + swagger.getHost());
-            }
-            if (StringUtils.isNotBlank(swagger.getBasePath())) {
-                markdownBuilder.textLine(BASE_PATH + swagger.getBasePath());
-            }
-            if (swagger.getSchemes() != null && !swagger.getSchemes().isEmpty()) {
-                List<String> schemes = swagger.getSchemes().stream().map(Scheme::toString).collect(Collectors.toList());
-                markdownBuilder.textLine(SCHEMES + StringUtils.join(schemes, ", "));
+    /**
+     * Renders a changelog of the operations and definitions that were added, removed or modified since the previous
+     * version of the spec. The code generation runs only for the paths that have added or modified operations.
+     */
+    public MarkdownBuilder renderChangelog(Swagger previous, Swagger swagger)
+            throws IOException
+    {
+        long deadline = budget.deadline(System.nanoTime());
+        SpecDiff diff = SpecDiff.compare(previous, swagger);
+        Set<String> changedPaths = Stream.concat(diff.getAddedOperations().stream(), diff.getModifiedOperations().stream())
+                .map(operation -> operation.path)
+                .collect(Collectors.toSet());
+        Map<String, Path> paths = new LinkedHashMap<>();
+        for (Map.Entry<String, Path> entry : swagger.getPaths().entrySet()) {
+            if (changedPaths.contains(entry.getKey())) {
+                paths.put(entry.getKey(), entry.getValue());
             }
-            markdownBuilder.newLine();
         }
+        validate(swagger, paths);
+        return new SlateDocument(swagger, getPlugins(), generateExampleUsages(swagger, paths, deadline), limits,
+                new EnumTables(enumTableThreshold), budget, deadline)
+                .buildChangelog(diff, previous);
+    }
 
-        if (!swagger.getTags().isEmpty()) {
-            for (Tag tag : swagger.getTags()) {
-                String name = tag.getName();
-                String description = tag.getDescription();
-                markdownBuilder.documentTitle(CaseFormat.UPPER_UNDERSCORE.to(CaseFormat.UPPER_CAMEL, name.replaceAll("-", " "))).newLine().textLine(description).newLine();
-                processOperation(name);
+    /**
+     * Assembles the fragments rendered with {@link #renderFragment(Swagger, Collection)} into a full document. The
+     * definitions are rendered with the options the fragments were rendered with, which must be the same for all of
+     * them.
+     */
+    public static MarkdownBuilder merge(Swagger swagger, List<String> languages, List<SlateFragment> fragments)
+            throws IOException
+    {
+        Validate.notEmpty(fragments, "at least one fragment must be specified");
+        SlateFragment first = fragments.get(0);
+        for (SlateFragment fragment : fragments) {
+            if (fragment.getEnumTableThreshold() != first.getEnumTableThreshold() || !fragment.getLimits().equals(first.getLimits())) {
+                throw new IllegalArgumentException("Fragments were rendered with different enum table thresholds or example limits");
             }
-            markdownBuilder.newLine();
         }
+        List<LanguagePlugin> plugins = languages.stream().map(LanguagePlugins::get).collect(Collectors.toList());
+        return new SlateDocument(swagger, plugins, ImmutableMap.of(), first.getLimits(),
+                new EnumTables(first.getEnumTableThreshold()), RenderBudget.UNLIMITED, Long.MAX_VALUE)
+                .build(fragments);
     }
 
-    private void processOperation(String path, String method, Operation operation)
+    /**
+     * Returns the tags of the given shard. Tags are weighted by their number of operations and each tag is
+     * assigned to the least loaded shard, starting from the heaviest one, so that the partition is both balanced and
+     * deterministic.
+     *
+     * @param shard the shard index starting from 0
+     */
+    public static List<String> partitionTags(Swagger swagger, int shard, int shards)
     {
-        try {
-            markdownBuilder.sectionTitleLevel1(operation.getSummary());
-
-            StringBuilder builder = new StringBuilder();
-            builder.append("curl ").append('"').append(swagger.getHost() == null ? "" : swagger.getHost()).append(path).append('"');
-            if (operation.getSecurity() != null) {
-                for (Map<String, List<String>> map : operation.getSecurity()) {
-                    for (Map.Entry<String, List<String>> entry : map.entrySet()) {
-                        builder.append(" -H \"" + entry.getKey() + ": my" + entry.getKey() + '"');
-                    }
-                }
-            }
+        Validate.isTrue(shard >= 0 && shard < shards, "shard index must be between 0 and shard count");
 
-            builder.append(" -X "+method);
-            if(operation.getParameters().stream().anyMatch(p -> p instanceof FormParameter || p instanceof BodyParameter)) {
-                builder.append(" -d @- << EOF \n" + toExampleJsonParameters(operation) + "\nEOF");
-            }
-
-            markdownBuilder.source(builder.toString(), "shell");
-
-            for (Map.Entry<String, String> entry : templates.get(new OperationIdentifier(path, method)).entrySet()) {
-                markdownBuilder.source(entry.getValue(), entry.getKey());
-            }
-
-            // TODO: response object also have example property
-            Response response = operation.getResponses().get("200");
-            if (response != null) {
-                markdownBuilder.textLine("> The above command returns JSON structured like this:").newLine();
-
-                Object example = response.getSchema().getExample();
-                if (example != null) {
-                    markdownBuilder.source(example.toString(), "json");
+        Map<String, Integer> weights = new LinkedHashMap<>();
+        for (Tag tag : swagger.getTags()) {
+            weights.put(tag.getName(), 0);
+        }
+        for (Path path : swagger.getPaths().values()) {
+            for (Operation operation : path.getOperations()) {
+                if (operation.getTags() != null) {
+                    operation.getTags().stream().filter(weights::containsKey).forEach(tag -> weights.merge(tag, 1, Integer::sum));
                 }
-                else {
-                    String value = getValue(response.getSchema());
-                    String prettyJson = mapper.writerWithDefaultPrettyPrinter()
-                            .writeValueAsString(mapper.readValue(value, Object.class));
+            }
+        }
 
-                    getValue(response.getSchema());
+        List<String> tags = new ArrayList<>(weights.keySet());
+        tags.sort(Comparator.comparing((String tag) -> -weights.get(tag)).thenComparing(tag -> tag));
 
-                    markdownBuilder.source(prettyJson, "json");
+        long[] loads = new long[shards];
+        List<String> partition = new ArrayList<>();
+        for (String tag : tags) {
+            int target = 0;
+            for (int i = 1; i < shards; i++) {
+                if (loads[i] < loads[target]) {
+                    target = i;
                 }
             }
-
-            markdownBuilder.sectionTitleLevel2("HTTP Request").textLine("`" + method + " " + path + "`");
-
-            renderParameters(operation.getParameters(), markdownBuilder);
-
-            markdownBuilder.sectionTitleLevel2("Responses for status codes");
-            List<String> responses = new ArrayList<>();
-
-            String headerRow = operation.getResponses()
-                    .keySet().stream()
-                    .collect(Collectors.joining("|"));
-            responses.add(headerRow);
-
-            String responseRow = operation.getResponses().values().stream()
-                    .filter(e -> e.getSchema() != null) // some responses can be null
-                    .map(e -> getType(e.getSchema(), definitions))
-                    .collect(Collectors.joining("|"));
-            responses.add(responseRow);
-
-            markdownBuilder.tableWithHeaderRow(responses);
-
-            String description = trimNullableText(operation.getDescription());
-            if (!description.isEmpty()) {
-                markdownBuilder.paragraph(description);
+            // tags without operations still have a section
+            loads[target] += Math.max(1, weights.get(tag));
+            if (target == shard) {
+                partition.add(tag);
             }
         }
-        catch (Exception e) {
-            LOGGER.error(format("An error occurred while processing operation. %s %s. Skipping..",
-                    method.toUpperCase(Locale.ENGLISH), path), e);
-        }
+        return partition;
     }
 
-
-    private void renderParameters(List<Parameter> _parameters, MarkdownBuilder markdownBuilder) {
-        Multimap<ParameterIn, String> parameterGroups = ArrayListMultimap.create();
-
-        if (_parameters == null || _parameters.isEmpty()) {
-            return;
-        }
-
-        _parameters.forEach(p -> {
-            ParameterIn parameterIn;
-            try {
-                parameterIn = ParameterIn.valueOf(p.getIn().toUpperCase(Locale.ENGLISH));
-            } catch (IllegalArgumentException e) {
-                throw new UnsupportedOperationException(format("Parameter type '%s' not supported yet.",
-                        p.getIn()));
-            }
-
-            parameterGroups.putAll(parameterIn, renderParameter(parameterIn, p));
-        });
-
-        parameterGroups.keySet().forEach(key -> {
-            List<String> group = new ArrayList<>();
-            group.add("Parameter|Required|Type|Description");
-            group.addAll(parameterGroups.get(key));
-
-            markdownBuilder.sectionTitleLevel2(key.getQuery() + " Parameters");
-            markdownBuilder.tableWithHeaderRow(group);
-        });
+    public List<String> getLanguages()
+    {
+        return languages.stream().map(l -> l.name).collect(Collectors.toList());
     }
 
-    private List<String> renderParameter(ParameterIn parameterIn, Parameter p) {
-        if (parameterIn.equals(ParameterIn.BODY)) {
-            Model schema = ((BodyParameter) p).getSchema();
-            if (schema instanceof RefModel) {
-                schema = swagger.getDefinitions().get(((RefModel) schema).getSimpleRef());
-            }
-
-            Map<String, Property> properties;
-            if (schema instanceof ArrayModel) {
-                Property items = ((ArrayModel) schema).getItems();
-                properties = ImmutableMap.of("array", items);
-            } else {
-                properties = schema.getProperties();
-            }
-            return properties.entrySet().stream()
-                    .map(entry -> entry.getKey() + "|" +
-                            entry.getValue().getRequired() + "|" +
-                            getType(entry.getValue(), definitions) + "|" +
-                            trimNullableText(entry.getValue().getDescription()))
-                    .collect(Collectors.toList());
-        } else {
-            return newArrayList(p.getName() + "|" +
-                    p.getRequired() + "|" +
-                    ParameterUtils.getType(p, definitions) + "|" +
-                    trimNullableText(p.getDescription()));
-        }
+    private List<LanguagePlugin> getPlugins()
+    {
+        return languages.stream().map(l -> l.plugin).collect(Collectors.toList());
     }
 
-    private String toExampleJsonParameters(Map<String, Property> properties)
+    private static boolean hasAnyTag(Operation operation, Collection<String> tags)
     {
-        return "{" + properties.entrySet()
-                .stream().map(e -> "\"" + e.getKey() + "\" : " + getValue(e.getValue()) + "\n")
-                .collect(Collectors.joining(", ")) + "}";
+        return operation.getTags() != null && operation.getTags().stream().anyMatch(tags::contains);
     }
 
-    private String toExampleJsonParameters(Operation operation)
+    public void render(Swagger swagger, Appendable output)
+            throws IOException
     {
-        if (operation.getParameters().size() == 1 && operation.getParameters().get(0).getIn().equals("body")) {
-            Model model = ((BodyParameter) operation.getParameters().get(0)).getSchema();
-
-            Map<String, Property> properties;
-            if (model.getReference() != null) {
-                String prefix = "#/definitions/";
-                if (model.getReference().startsWith(prefix)) {
-                    Model model1 = swagger.getDefinitions().get(model.getReference().substring(prefix.length()));
-                    if (model1 instanceof ArrayModel) {
-                        return prettyJson("[" + getValue(((ArrayModel) model1).getItems()) + "]");
-                    }
-                    properties = model1.getProperties();
-                }
-                else {
-                    throw new IllegalStateException();
-                }
-            }
-            else {
-                properties = model.getProperties();
-            }
-            return prettyJson(toExampleJsonParameters(properties));
-        }
+        output.append(render(swagger).toString());
+    }
 
-        String jsonString = "{" + operation.getParameters().stream()
-                .filter(e -> e instanceof FormParameter).map(e -> "\"" + e.getName() + "\" : " + getValue((AbstractSerializableParameter) e))
-                .collect(Collectors.joining(", ")) + "}";
+    public void render(String inputSpec, Appendable output)
+            throws IOException
+    {
+        render(readSwagger(inputSpec, null), output);
+    }
 
-        return prettyJson(jsonString);
+    public static Swagger readSwagger(String inputSpec, String auth)
+    {
+        return readSwagger(inputSpec, auth, new HashMap<>());
     }
 
-    private static String prettyJson(String json)
+    /**
+     * Reads the spec and puts the sha256 of each document that it references into {@code documents}, keyed by the
+     * canonical path or the url of the document.
+     */
+    public static Swagger readSwagger(String inputSpec, String auth, Map<String, String> documents)
     {
+        Validate.notEmpty(inputSpec, "input spec must be specified");
+        List<AuthorizationValue> auths = AuthParser.parse(auth);
+        Swagger swagger;
         try {
-            return mapper.enable(SerializationFeature.INDENT_OUTPUT)
-                    .writerWithDefaultPrettyPrinter().writeValueAsString(mapper.readValue(json, Object.class));
+            // SwaggerParser resolves the refs of a spec read from a location even if it's asked not to
+            swagger = new Swagger20Parser().read(inputSpec, auths);
         }
         catch (IOException e) {
-            throw new IllegalStateException("Example generator couldn't generate a valid JSON");
+            swagger = null;
         }
+        if (swagger == null) {
+            // the older spec versions are converted and resolved by the parser extensions
+            swagger = new SwaggerParser().read(inputSpec, auths, true);
+        }
+        if (swagger == null) {
+            throw new IllegalArgumentException(format("Unable to read swagger spec %s", inputSpec));
+        }
+        return SwaggerDeduplicator.deduplicate(ExternalRefResolver.resolve(swagger, inputSpec, auths, documents));
     }
 
-    private String getValue(Property value) {
-        return getValue(value, null);
+    /**
+     * Parses the given spec content like {@link #readSwagger(String, String, Map)} reads the spec at the location,
+     * the relative refs of the content are resolved against the directory of the location.
+     */
+    public static Swagger parseSwagger(String content, String location, Map<String, String> documents)
+    {
+        return parseSwagger(content, location, documents, document -> true);
     }
 
-    private String getValue(Property value, Property parent)
+    /**
+     * Parses the given spec content like {@link #parseSwagger(String, String, Map)}, but only reads the referenced
+     * documents whose canonical path or url is allowed by {@code allowed}.
+     */
+    public static Swagger parseSwagger(String content, String location, Map<String, String> documents, Predicate<String> allowed)
     {
-        if (value.getExample() != null && value.getExample() != null) {
-            return value.getExample().toString();
-        }
-        if (value instanceof StringProperty) {
-            List<String> anEnum = ((StringProperty) value).getEnum();
-            if (anEnum != null && !anEnum.isEmpty()) {
-                try {
-                    return mapper.writeValueAsString(anEnum.get(0));
-                }
-                catch (JsonProcessingException e) {
-                    throw Throwables.propagate(e);
-                }
-            }
-            return "\"str\"";
-        }
-        else if (value instanceof IntegerProperty || value instanceof LongProperty) {
-            return "1";
-        }
-        else if (value instanceof DoubleProperty) {
-            return "1.0";
-        }
-        else if (value instanceof DateProperty) {
-            return "\"2015-01-20\"";
-        }
-        else if (value instanceof BooleanProperty) {
-            return "true";
-        }
-        else if (value instanceof MapProperty) {
-            return "{\"prop\": {}}";
-        }
-        else if (value instanceof RefProperty) {
-            Model model = swagger.getDefinitions().get(((RefProperty) value).getSimpleRef());
-            return "{" + model.getProperties()
-                    .entrySet()
-                    .stream()
-                    .map(e -> "\"" + e.getKey() + "\" : " + getValue(e.getValue(), parent) + "")
-                    .collect(Collectors.joining(", ")) + "}";
-        }
-        else if (value instanceof ArrayProperty) {
-            if (parent != null && parent.equals(value)) {
-                return "[]";
-            } else {
-                return "[\n\t" + getValue(((ArrayProperty) value).getItems(), value) + "\n]";
-            }
-        }
-        else if (value instanceof ObjectProperty) {
-            return "\"object\"";
-        }
-        else if (value instanceof DateTimeProperty) {
-            return "\"2016-03-03T10:15:30.00Z\"";
+        Swagger swagger;
+        try {
+            ObjectMapper mapper = content.trim().startsWith("{") ? Json.mapper() : Yaml.mapper();
+            swagger = new SwaggerParser().read(mapper.readTree(content), false);
         }
-        else if (value instanceof UUIDProperty) {
-            return "\"4f884c73-7d2d-4c70-9e16-9685bda4263a\"";
+        catch (IOException e) {
+            throw new IllegalArgumentException(format("Unable to parse swagger spec: %s", e.getMessage()));
         }
-        else {
-            throw new IllegalStateException("Value " + value + " is not supported.");
+        if (swagger == null) {
+            throw new IllegalArgumentException("Unable to parse swagger spec");
         }
+        return SwaggerDeduplicator.deduplicate(ExternalRefResolver.resolve(swagger, location, ImmutableList.of(), documents, allowed));
     }
 
-    private String getValue(AbstractSerializableParameter value)
+    private void validate(Swagger swagger, Map<String, Path> paths)
     {
-        switch (value.getType()) {
-            case "date":
-                return "\"2015-01-20\"";
-            case "string":
-                return "\"str\"";
-            case "integer":
-            case "long":
-                return "0";
-            case "double":
-                return "0.0";
-            case "boolean":
-                return "false";
-            case "map":
-                return "{\"prop\": value}";
-            case "array":
-                return "[\n\t" + getValue(value.getItems()) + "\n]";
-            default:
-                return "";
+        if (validate) {
+            long start = System.nanoTime();
+            SpecValidator.check(swagger, paths);
+            LOGGER.debug("Validated the spec in {} ms", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
         }
     }
 
-    private String trimNullableText(String text)
+    /**
+     * Renders the language samples of the operations. The chunks of paths that start after the deadline are skipped,
+     * their operations are then rendered without the samples of the language.
+     *
+     * The paths of a language are processed in chunks in parallel, each with its own {@link DefaultGenerator}. The
+     * samples are then merged in the order a single pass over all the paths produces: by tag, then by path.
+     */
+    private Map<OperationIdentifier, Map<String, String>> generateExampleUsages(Swagger swagger, Map<String, Path> paths, long deadline)
     {
-        if (text == null || text.equals("null")) {
-            return "";
+        Map<OperationIdentifier, Map<String, String>> templates = Maps.newHashMap();
+
+        for (ExampleLanguage language : languages) {
+            if (RenderBudget.isExpired(deadline)) {
+                LOGGER.warn("Render deadline exceeded, skipping the {} samples", language.name);
+                continue;
+            }
+
+            List<List<Map.Entry<String, Path>>> partition = Lists.newArrayList(Iterables.partition(paths.entrySet(), PATHS_PER_CHUNK));
+            AtomicInteger skipped = new AtomicInteger();
+            List<Map<String, List<Map.Entry<OperationIdentifier, String>>>> chunks = partition.parallelStream()
+                    .map(chunk -> {
+                        if (RenderBudget.isExpired(deadline)) {
+                            skipped.incrementAndGet();
+                            return ImmutableMap.<String, List<Map.Entry<OperationIdentifier, String>>>of();
+                        }
+                        return generateExampleUsages(swagger, language, chunk);
+                    })
+                    .collect(Collectors.toList());
+            if (skipped.get() > 0) {
+                LOGGER.warn("Render deadline exceeded, skipping the {} samples of {} of {} chunks of paths", language.name, skipped.get(), partition.size());
+            }
+
+            Map<String, List<Map.Entry<OperationIdentifier, String>>> usages = new TreeMap<>();
+            for (Map<String, List<Map.Entry<OperationIdentifier, String>>> chunk : chunks) {
+                chunk.forEach((tag, samples) -> usages.computeIfAbsent(tag, key -> new ArrayList<>()).addAll(samples));
+            }
+            // an operation with several tags keeps the sample of its last tag
+            for (List<Map.Entry<OperationIdentifier, String>> samples : usages.values()) {
+                for (Map.Entry<OperationIdentifier, String> sample : samples) {
+                    templates.computeIfAbsent(sample.getKey(), key -> Maps.newHashMap())
+                            .put(language.plugin.getTab(), sample.getValue());
+                }
+            }
         }
-        return text.trim();
+
+        return templates;
     }
 
-    private enum ParameterIn
+    /**
+     * Renders the samples of the operations in the given paths by their tag, in the order of the paths.
+     */
+    private static Map<String, List<Map.Entry<OperationIdentifier, String>>> generateExampleUsages(Swagger swagger, ExampleLanguage language, List<Map.Entry<String, Path>> chunk)
     {
-        PATH("Path"), BODY("Body"), HEADER("Header"), FORMDATA("Form"), QUERY("Query");
+        CodegenConfig config = language.config;
+
+        DefaultGenerator defaultGenerator = new DefaultGenerator();
+        defaultGenerator.opts(new ClientOptInput().opts(new ClientOpts()).config(config).swagger(swagger));
+
+        Map<String, Path> paths = new LinkedHashMap<>();
+        chunk.forEach(entry -> paths.put(entry.getKey(), entry.getValue()));
+
+        Map<String, List<Map.Entry<OperationIdentifier, String>>> usages = new LinkedHashMap<>();
+        Map<String, List<CodegenOperation>> operations = defaultGenerator.processPaths(paths);
+        for (String parentTag : operations.keySet()) {
+            List<CodegenOperation> ops = operations.get(parentTag);
+            List<Map.Entry<OperationIdentifier, String>> samples = new ArrayList<>();
+            for (CodegenOperation op : ops) {
+                Map<String, Object> operation = defaultGenerator.processOperations(config, parentTag, ImmutableList.of(op));
+
+                operation.put("modelPackage", config.modelPackage());
+                operation.put("classname", config.toApiName(parentTag));
+                operation.put("hostname", swagger.getHost());
+
+                for (String templateName : config.apiTemplateFiles().keySet()) {
+                    String filename = config.apiFilename(templateName, parentTag);
+                    if (!config.shouldOverwrite(filename) && new File(filename).exists()) {
+                        continue;
+                    }
 
-        private final String query;
+                    samples.add(Maps.immutableEntry(new OperationIdentifier(op.path, op.httpMethod), language.renderer.render(operation)));
+                }
+            }
+            usages.put(parentTag, samples);
+        }
+        return usages;
+    }
 
-        ParameterIn(String query)
+    /**
+     * Renders the samples of a lazily loaded spec tag by tag instead of all at once. The code generation adds the path
+     * level parameters to the operations, so the paths of a tag are held from the first tag that renders them until
+     * the last one has been rendered, otherwise they could be collected and parsed again without the parameters.
+     *
+     * The paths are indexed by tag once, so each tag only parses its own paths.
+     */
+    private class LazyTagPaths
+            implements SlateDocument.TagPaths
+    {
+        private final Swagger swagger;
+        private final Map<String, Set<String>> pathsByTag;
+        private final Map<String, Integer> openTags;
+        private final Set<String> generated;
+        private final Map<OperationIdentifier, Map<String, String>> templates;
+        private final long deadline;
+
+        /**
+         * @param tags the tags that are rendered, the paths are released once all of their tags are closed
+         * @param templates the map the samples of the opened paths are added to
+         */
+        private LazyTagPaths(Swagger swagger, Collection<String> tags, Map<OperationIdentifier, Map<String, String>> templates, long deadline)
         {
-            this.query = query;
+            this.swagger = swagger;
+            this.templates = templates;
+            this.deadline = deadline;
+            this.pathsByTag = new HashMap<>();
+            this.openTags = new HashMap<>();
+            this.generated = new HashSet<>();
+
+            for (Map.Entry<String, Path> entry : swagger.getPaths().entrySet()) {
+                Set<String> pathTags = entry.getValue().getOperations().stream()
+                        .filter(operation -> operation.getTags() != null)
+                        .flatMap(operation -> operation.getTags().stream())
+                        .filter(tags::contains)
+                        .collect(Collectors.toSet());
+                for (String tag : pathTags) {
+                    pathsByTag.computeIfAbsent(tag, key -> new LinkedHashSet<>()).add(entry.getKey());
+                }
+                if (!pathTags.isEmpty()) {
+                    openTags.put(entry.getKey(), pathTags.size());
+                }
+            }
         }
 
-        public String getQuery()
+        @Override
+        public Map<String, Path> open(String tag)
         {
-            return query;
+            Set<String> keys = pathsByTag.getOrDefault(tag, ImmutableSet.of());
+            LazySwaggerLoader.hold(swagger.getPaths(), keys);
+
+            Map<String, Path> paths = new LinkedHashMap<>();
+            Map<String, Path> pending = new LinkedHashMap<>();
+            for (String key : keys) {
+                Path path = swagger.getPaths().get(key);
+                paths.put(key, path);
+                if (generated.add(key)) {
+                    pending.put(key, path);
+                }
+            }
+            if (!pending.isEmpty()) {
+                templates.putAll(generateExampleUsages(swagger, pending, deadline));
+            }
+            return paths;
+        }
+
+        @Override
+        public void close(String tag)
+        {
+            List<String> released = new ArrayList<>();
+            for (String key : pathsByTag.getOrDefault(tag, ImmutableSet.of())) {
+                if (openTags.merge(key, -1, Integer::sum) <= 0) {
+                    released.add(key);
+                }
+            }
+            // a released path is generated again if it's opened again
+            generated.removeAll(released);
+            LazySwaggerLoader.release(swagger.getPaths(), released);
         }
     }
 
-    private Map<OperationIdentifier, Map<String, String>> generateExampleUsages()
-            throws IOException
+    /**
+     * Configures the codegen config the same way {@link CodegenConfigurator#toClientOptInput()} does,
+     * without reading the input spec so that the config can be reused for different specs.
+     */
+    private static CodegenConfig toCodegenConfig(CodegenConfigurator configurator, CodegenConfig config)
     {
-        Map<OperationIdentifier, Map<String, String>> templates = Maps.newHashMap();
-
-        Map<String, Map.Entry<CodegenConfig, DefaultGenerator>> languages = new HashMap<>();
-
-        for (CodegenConfigurator configurator : configurators) {
-            ClientOptInput clientOptInput = configurator.toClientOptInput();
-            clientOptInput.getConfig().processOpts();
-
-            DefaultGenerator defaultGenerator = new DefaultGenerator();
-            defaultGenerator.opts(clientOptInput);
+        for (Map.Entry<String, String> entry : configurator.getSystemProperties().entrySet()) {
+            System.setProperty(entry.getKey(), entry.getValue());
+        }
 
-            if (!supportedLanguages.contains(configurator.getLang())) {
-                throw new IllegalArgumentException(format("Language %s is not supported at the moment.", configurator.getLang()));
-            }
+        if (isNotEmpty(configurator.getOutputDir())) {
+            config.setOutputDir(Paths.get(configurator.getOutputDir()).toAbsolutePath().toString());
+        }
+        config.setSkipOverwrite(configurator.isSkipOverwrite());
+        config.instantiationTypes().putAll(configurator.getInstantiationTypes());
+        config.typeMapping().putAll(configurator.getTypeMappings());
+        config.importMapping().putAll(configurator.getImportMappings());
+        config.languageSpecificPrimitives().addAll(configurator.getLanguageSpecificPrimitives());
 
-            languages.put(configurator.getLang(), new AbstractMap.SimpleImmutableEntry<>(clientOptInput.getConfig(), defaultGenerator));
+        Map<String, Object> properties = config.additionalProperties();
+        putIfNotEmpty(properties, CodegenConstants.API_PACKAGE, configurator.getApiPackage());
+        putIfNotEmpty(properties, CodegenConstants.MODEL_PACKAGE, configurator.getModelPackage());
+        putIfNotEmpty(properties, CodegenConstants.INVOKER_PACKAGE, configurator.getInvokerPackage());
+        putIfNotEmpty(properties, CodegenConstants.GROUP_ID, configurator.getGroupId());
+        putIfNotEmpty(properties, CodegenConstants.ARTIFACT_ID, configurator.getArtifactId());
+        putIfNotEmpty(properties, CodegenConstants.ARTIFACT_VERSION, configurator.getArtifactVersion());
+        if (isNotEmpty(configurator.getTemplateDir())) {
+            properties.put(CodegenConstants.TEMPLATE_DIR, Paths.get(configurator.getTemplateDir()).toAbsolutePath().toString());
+        }
+        putIfNotEmpty(properties, CodegenConstants.MODEL_NAME_PREFIX, configurator.getModelNamePrefix());
+        putIfNotEmpty(properties, CodegenConstants.MODEL_NAME_SUFFIX, configurator.getModelNameSuffix());
+        putIfNotEmpty(properties, CodegenConstants.GIT_USER_ID, configurator.getGitUserId());
+        putIfNotEmpty(properties, CodegenConstants.GIT_REPO_ID, configurator.getGitRepoId());
+        putIfNotEmpty(properties, CodegenConstants.RELEASE_NOTE, configurator.getReleaseNote());
+        putIfNotEmpty(properties, CodegenConstants.HTTP_USER_AGENT, configurator.getHttpUserAgent());
 
-            if (swagger == null) {
-                swagger = clientOptInput.getSwagger();
+        Map<String, String> dynamicProperties = configurator.getDynamicProperties();
+        for (CliOption option : config.cliOptions()) {
+            if (dynamicProperties.containsKey(option.getOpt())) {
+                properties.put(option.getOpt(), dynamicProperties.get(option.getOpt()));
             }
         }
 
-        for (Map.Entry<String, Map.Entry<CodegenConfig, DefaultGenerator>> entry : languages.entrySet()) {
-            String language = entry.getKey();
-            Map.Entry<CodegenConfig, DefaultGenerator> value = entry.getValue();
-
-            Map<String, List<CodegenOperation>> operations = value.getValue().processPaths(swagger.getPaths());
-            for (String parentTag : operations.keySet()) {
-                List<CodegenOperation> ops = operations.get(parentTag);
-                for (CodegenOperation op : ops) {
-                    Map<String, Object> operation = value.getValue().processOperations(value.getKey(), parentTag, ImmutableList.of(op));
-
-                    operation.put("modelPackage", value.getKey().modelPackage());
-                    operation.put("classname", value.getKey().toApiName(parentTag));
-                    operation.put("hostname", swagger.getHost());
+        if (isNotEmpty(configurator.getLibrary())) {
+            config.setLibrary(configurator.getLibrary());
+        }
+        properties.putAll(configurator.getAdditionalProperties());
 
-                    for (String templateName : value.getKey().apiTemplateFiles().keySet()) {
-                        String filename = value.getKey().apiFilename(templateName, parentTag);
-                        if (!value.getKey().shouldOverwrite(filename) && new File(filename).exists()) {
-                            continue;
-                        }
+        config.processOpts();
+        return config;
+    }
 
-                        String template;
-                        URL resource = this.getClass().getClassLoader().getResource("templates/" + language + "_api_example.mustache");
+    private static void putIfNotEmpty(Map<String, Object> properties, String name, String value)
+    {
+        if (isNotEmpty(value)) {
+            properties.put(name, value);
+        }
+    }
 
-                        template = Resources.toString(resource, StandardCharsets.UTF_8);
+    /**
+     * The parts of a language that don't depend on the spec. The config and the renderer are only read after
+     * construction. The bundled templates are rendered with the classes compiled from them at build time, other
+     * templates with JMustache.
+     */
+    private static class ExampleLanguage
+    {
+        private final String name;
+        private final LanguagePlugin plugin;
+        private final CodegenConfig config;
+        private final ExampleRenderer renderer;
 
-                        Template tmpl = Mustache.compiler()
-                                .withLoader(name -> value.getValue().getTemplateReader(value.getKey().templateDir() + File.separator + name + ".mustache"))
-                                .defaultValue("")
-                                .compile(template);
+        private ExampleLanguage(LanguagePlugin plugin, CodegenConfigurator configurator)
+                throws IOException
+        {
+            this.name = configurator.getLang();
+            this.plugin = plugin;
+            this.config = toCodegenConfig(configurator, plugin.createConfig());
 
-                        templates.computeIfAbsent(new OperationIdentifier(op.path, op.httpMethod), key -> Maps.newHashMap()).put(language, tmpl.execute(operation));
-                    }
-                }
+            URL resource = plugin.getExampleTemplate();
+            String source = Resources.toString(resource, StandardCharsets.UTF_8);
+            ExampleRenderer compiled = ExampleRenderers.compiled(source);
+            if (compiled != null) {
+                this.renderer = compiled;
+            }
+            else {
+                DefaultGenerator templateReader = new DefaultGenerator();
+                Template template = Mustache.compiler()
+                        .withLoader(name -> templateReader.getTemplateReader(config.templateDir() + File.separator + name + ".mustache"))
+                        .defaultValue("")
+                        .compile(source);
+                this.renderer = template::execute;
             }
         }
-
-        return templates;
     }
 
     public static class OperationIdentifier
@@ -571,31 +681,4 @@ public class SlateDocumentGenerator
                     '}';
         }
     }
-
-    private void processOperation(String tag)
-    {
-
-        for (Map.Entry<String, Path> entry : swagger.getPaths().entrySet()) {
-
-            Path value = entry.getValue();
-            if (value.getGet() != null && value.getGet().getTags().contains(tag)) {
-                processOperation(entry.getKey(), "GET", value.getGet());
-            }
-            if (value.getPut() != null && value.getPut().getTags().contains(tag)) {
-                processOperation(entry.getKey(), "PUT", value.getPut());
-            }
-            if (value.getPost() != null && value.getPost().getTags().contains(tag)) {
-                processOperation(entry.getKey(), "POST", value.getPost());
-            }
-            if (value.getDelete() != null && value.getDelete().getTags().contains(tag)) {
-                processOperation(entry.getKey(), "DELETE", value.getDelete());
-            }
-            if (value.getPatch() != null && value.getPatch().getTags().contains(tag)) {
-                processOperation(entry.getKey(), "PATH", value.getPatch());
-            }
-            if (value.getOptions() != null && value.getOptions().getTags().contains(tag)) {
-                processOperation(entry.getKey(), "OPTIONS", value.getOptions());
-            }
-        }
-    }
 }
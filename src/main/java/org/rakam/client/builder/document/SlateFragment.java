@@ -0,0 +1,154 @@
+package org.rakam.client.builder.document;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.ImmutableSortedSet;
+import org.rakam.client.utils.EnumTables;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static java.lang.String.format;
+
+/**
+ * Rendered sections of a subset of the tags, together with the definitions they reference.
+ *
+ * A fragment is stored as a markdown file that contains the sections one after another and a json sidecar
+ * that lists the tags with the length of their sections, the referenced definitions, the values of the large
+ * enums and the options the fragment was rendered with, so that the shards are merged with the same options.
+ */
+public class SlateFragment
+{
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    private final Map<String, String> sections;
+    private final Set<String> definitions;
+    private final Map<String, List<String>> enumTables;
+    private final int enumTableThreshold;
+    private final ExampleLimits limits;
+
+    public SlateFragment(Map<String, String> sections, Set<String> definitions, Map<String, List<String>> enumTables)
+    {
+        this(sections, definitions, enumTables, EnumTables.DEFAULT_THRESHOLD, ExampleLimits.DEFAULT);
+    }
+
+    public SlateFragment(Map<String, String> sections, Set<String> definitions, Map<String, List<String>> enumTables,
+            int enumTableThreshold, ExampleLimits limits)
+    {
+        this.sections = ImmutableMap.copyOf(sections);
+        this.definitions = ImmutableSortedSet.copyOf(definitions);
+        this.enumTables = ImmutableSortedMap.copyOf(enumTables);
+        this.enumTableThreshold = enumTableThreshold;
+        this.limits = limits;
+    }
+
+    public Map<String, String> getSections()
+    {
+        return sections;
+    }
+
+    public Set<String> getDefinitions()
+    {
+        return definitions;
+    }
+
+    /**
+     * Returns the values of the large enums that the sections link to, by their section title.
+     */
+    public Map<String, List<String>> getEnumTables()
+    {
+        return enumTables;
+    }
+
+    public int getEnumTableThreshold()
+    {
+        return enumTableThreshold;
+    }
+
+    public ExampleLimits getLimits()
+    {
+        return limits;
+    }
+
+    /**
+     * Writes the fragment to {@code name.md} and {@code name.json} in the given directory.
+     */
+    public void write(File directory, String name)
+            throws IOException
+    {
+        StringBuilder markdown = new StringBuilder();
+        ObjectNode sidecar = mapper.createObjectNode();
+        ArrayNode tags = sidecar.putArray("tags");
+        for (Map.Entry<String, String> section : sections.entrySet()) {
+            markdown.append(section.getValue());
+            tags.addObject().put("name", section.getKey()).put("length", section.getValue().length());
+        }
+        ArrayNode definitions = sidecar.putArray("definitions");
+        this.definitions.forEach(definitions::add);
+        ObjectNode enumTables = sidecar.putObject("enums");
+        this.enumTables.forEach((title, values) -> values.forEach(enumTables.putArray(title)::add));
+        sidecar.put("enumTableThreshold", enumTableThreshold);
+        sidecar.putObject("exampleLimits")
+                .put("maxDepth", limits.getMaxDepth())
+                .put("maxProperties", limits.getMaxProperties())
+                .put("maxArrayItems", limits.getMaxArrayItems())
+                .put("maxBytes", limits.getMaxBytes());
+
+        Files.write(new File(directory, name + ".md").toPath(), markdown.toString().getBytes(StandardCharsets.UTF_8));
+        mapper.writerWithDefaultPrettyPrinter().writeValue(new File(directory, name + ".json"), sidecar);
+    }
+
+    /**
+     * Reads the fragment written with {@link #write(File, String)} from its json sidecar.
+     */
+    public static SlateFragment read(File sidecarFile)
+            throws IOException
+    {
+        String name = sidecarFile.getName().replaceFirst("\\.json$", "");
+        String markdown = new String(Files.readAllBytes(new File(sidecarFile.getParentFile(), name + ".md").toPath()), StandardCharsets.UTF_8);
+        JsonNode sidecar = mapper.readTree(sidecarFile);
+
+        Map<String, String> sections = new LinkedHashMap<>();
+        int offset = 0;
+        for (JsonNode tag : sidecar.get("tags")) {
+            int length = tag.get("length").asInt();
+            if (offset + length > markdown.length()) {
+                throw new IllegalArgumentException(format("Fragment %s doesn't match its sidecar", name));
+            }
+            sections.put(tag.get("name").asText(), markdown.substring(offset, offset + length));
+            offset += length;
+        }
+
+        ImmutableSortedSet.Builder<String> definitions = ImmutableSortedSet.naturalOrder();
+        sidecar.get("definitions").forEach(definition -> definitions.add(definition.asText()));
+
+        Map<String, List<String>> enumTables = new LinkedHashMap<>();
+        if (sidecar.has("enums")) {
+            sidecar.get("enums").fields().forEachRemaining(table -> {
+                List<String> values = new ArrayList<>();
+                table.getValue().forEach(value -> values.add(value.asText()));
+                enumTables.put(table.getKey(), values);
+            });
+        }
+        // the sidecars written before the options were recorded were rendered with the defaults
+        int enumTableThreshold = sidecar.has("enumTableThreshold") ? sidecar.get("enumTableThreshold").asInt() : EnumTables.DEFAULT_THRESHOLD;
+        ExampleLimits limits = ExampleLimits.DEFAULT;
+        if (sidecar.has("exampleLimits")) {
+            JsonNode node = sidecar.get("exampleLimits");
+            limits = new ExampleLimits(node.get("maxDepth").asInt(), node.get("maxProperties").asInt(),
+                    node.get("maxArrayItems").asInt(), node.get("maxBytes").asInt());
+        }
+        return new SlateFragment(sections, definitions.build(), enumTables, enumTableThreshold, limits);
+    }
+}
@@ -0,0 +1,107 @@
+package org.rakam.client.builder.document;
+
+import io.github.robwin.markup.builder.markdown.MarkdownBuilder;
+
+import java.util.Arrays;
+
+/**
+ * {@link MarkdownBuilder} that also allows appending markdown that is already rendered and writing tables
+ * cell by cell.
+ *
+ * Unlike {@link MarkdownBuilder#tableWithHeaderRow(java.util.List)}, the table methods don't need the rows joined
+ * into strings first. Cells are escaped while they are written to the document, so a {@code |} or a line break in
+ * a description doesn't break the table.
+ */
+public class SlateMarkdownBuilder extends MarkdownBuilder
+{
+    private static final String COLUMN_DELIMITER = "|";
+    private static final String HEADER_DELIMITER = "----|";
+
+    private boolean rowStarted;
+
+    public SlateMarkdownBuilder text(String markdown)
+    {
+        documentBuilder.append(markdown);
+        return this;
+    }
+
+    public SlateMarkdownBuilder tableHeader(String... columns)
+    {
+        return tableHeader(Arrays.asList(columns));
+    }
+
+    /**
+     * Starts a table with the given columns. The rows are written with {@link #cell(String)} and {@link #endRow()},
+     * and the table is closed with {@link #endTable()}.
+     */
+    public SlateMarkdownBuilder tableHeader(Iterable<String> columns)
+    {
+        int count = 0;
+        for (String column : columns) {
+            cell(column);
+            count++;
+        }
+        endRow();
+
+        documentBuilder.append(COLUMN_DELIMITER);
+        for (int i = 0; i < count; i++) {
+            documentBuilder.append(HEADER_DELIMITER);
+        }
+        newLine();
+        return this;
+    }
+
+    public SlateMarkdownBuilder cell(boolean value)
+    {
+        return cell(value ? "true" : "false");
+    }
+
+    public SlateMarkdownBuilder cell(String text)
+    {
+        documentBuilder.append(COLUMN_DELIMITER);
+        rowStarted = true;
+        if (text == null) {
+            return this;
+        }
+        // most cells have nothing to escape, String.indexOf is much faster than checking the characters one by one
+        if (text.indexOf('|') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            documentBuilder.append(text);
+            return this;
+        }
+        int start = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '|' || c == '\n' || c == '\r') {
+                documentBuilder.append(text, start, i);
+                if (c == '|') {
+                    documentBuilder.append("\\|");
+                }
+                else if (c == '\n') {
+                    documentBuilder.append("<br>");
+                }
+                start = i + 1;
+            }
+        }
+        documentBuilder.append(text, start, text.length());
+        return this;
+    }
+
+    public SlateMarkdownBuilder endRow()
+    {
+        if (!rowStarted) {
+            // an empty row still has a single empty cell
+            documentBuilder.append(COLUMN_DELIMITER);
+        }
+        documentBuilder.append(COLUMN_DELIMITER);
+        newLine();
+        rowStarted = false;
+        return this;
+    }
+
+    public SlateMarkdownBuilder endTable()
+    {
+        newLine();
+        newLine();
+        return this;
+    }
+}
@@ -0,0 +1,29 @@
+package org.rakam.client.language;
+
+import com.google.common.io.Resources;
+import io.swagger.codegen.CodegenConfig;
+import io.swagger.codegen.languages.JavaClientCodegen;
+
+import java.net.URL;
+
+public class JavaLanguagePlugin
+        implements LanguagePlugin
+{
+    @Override
+    public String getName()
+    {
+        return "java";
+    }
+
+    @Override
+    public CodegenConfig createConfig()
+    {
+        return new JavaClientCodegen();
+    }
+
+    @Override
+    public URL getExampleTemplate()
+    {
+        return Resources.getResource(JavaLanguagePlugin.class, "/templates/java_api_example.mustache");
+    }
+}
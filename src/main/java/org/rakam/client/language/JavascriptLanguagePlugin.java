@@ -0,0 +1,29 @@
+package org.rakam.client.language;
+
+import com.google.common.io.Resources;
+import io.swagger.codegen.CodegenConfig;
+import io.swagger.codegen.languages.JavascriptClientCodegen;
+
+import java.net.URL;
+
+public class JavascriptLanguagePlugin
+        implements LanguagePlugin
+{
+    @Override
+    public String getName()
+    {
+        return "javascript";
+    }
+
+    @Override
+    public CodegenConfig createConfig()
+    {
+        return new JavascriptClientCodegen();
+    }
+
+    @Override
+    public URL getExampleTemplate()
+    {
+        return Resources.getResource(JavascriptLanguagePlugin.class, "/templates/javascript_api_example.mustache");
+    }
+}
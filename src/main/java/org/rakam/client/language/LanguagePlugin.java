@@ -0,0 +1,47 @@
+package org.rakam.client.language;
+
+import io.swagger.codegen.CodegenConfig;
+
+import java.net.URL;
+
+/**
+ * Adds a client language to the generated documents.
+ *
+ * Plugins are discovered with {@link java.util.ServiceLoader}, so implementations are listed in
+ * {@code META-INF/services/org.rakam.client.language.LanguagePlugin}. Plugins are instantiated while looking up a
+ * language, so the constructor should not do any work. The codegen config and the template are only created for the
+ * languages that are rendered.
+ */
+public interface LanguagePlugin
+{
+    /**
+     * Name of the language in the {@code -l} option.
+     */
+    String getName();
+
+    /**
+     * Creates the codegen config of the language. The options of the configurator are applied to it afterwards.
+     */
+    CodegenConfig createConfig();
+
+    /**
+     * Mustache template that renders the example usage of an operation from its codegen data.
+     */
+    URL getExampleTemplate();
+
+    /**
+     * Slate language tab that shows the examples.
+     */
+    default String getTab()
+    {
+        return getName();
+    }
+
+    /**
+     * Name of the language in the introduction of the document.
+     */
+    default String getDisplayName()
+    {
+        return getName();
+    }
+}
@@ -0,0 +1,26 @@
+package org.rakam.client.language;
+
+import java.util.ServiceLoader;
+
+import static java.lang.String.format;
+
+public final class LanguagePlugins
+{
+    private LanguagePlugins()
+    {
+    }
+
+    /**
+     * Looks up the plugin of the given language with the context class loader, so plugins in other jars on the
+     * classpath are found as well.
+     */
+    public static LanguagePlugin get(String name)
+    {
+        for (LanguagePlugin plugin : ServiceLoader.load(LanguagePlugin.class)) {
+            if (plugin.getName().equals(name)) {
+                return plugin;
+            }
+        }
+        throw new IllegalArgumentException(format("Language %s is not supported at the moment.", name));
+    }
+}
@@ -0,0 +1,29 @@
+package org.rakam.client.language;
+
+import com.google.common.io.Resources;
+import io.swagger.codegen.CodegenConfig;
+import io.swagger.codegen.languages.PhpClientCodegen;
+
+import java.net.URL;
+
+public class PhpLanguagePlugin
+        implements LanguagePlugin
+{
+    @Override
+    public String getName()
+    {
+        return "php";
+    }
+
+    @Override
+    public CodegenConfig createConfig()
+    {
+        return new PhpClientCodegen();
+    }
+
+    @Override
+    public URL getExampleTemplate()
+    {
+        return Resources.getResource(PhpLanguagePlugin.class, "/templates/php_api_example.mustache");
+    }
+}
@@ -0,0 +1,29 @@
+package org.rakam.client.language;
+
+import com.google.common.io.Resources;
+import io.swagger.codegen.CodegenConfig;
+import io.swagger.codegen.languages.PythonClientCodegen;
+
+import java.net.URL;
+
+public class PythonLanguagePlugin
+        implements LanguagePlugin
+{
+    @Override
+    public String getName()
+    {
+        return "python";
+    }
+
+    @Override
+    public CodegenConfig createConfig()
+    {
+        return new PythonClientCodegen();
+    }
+
+    @Override
+    public URL getExampleTemplate()
+    {
+        return Resources.getResource(PythonLanguagePlugin.class, "/templates/python_api_example.mustache");
+    }
+}
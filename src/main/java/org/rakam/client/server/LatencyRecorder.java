@@ -0,0 +1,51 @@
+package org.rakam.client.server;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the most recent samples in a ring buffer and computes percentiles over them.
+ */
+public class LatencyRecorder
+{
+    private final long[] samples;
+    private long count;
+
+    public LatencyRecorder(int window)
+    {
+        this.samples = new long[window];
+    }
+
+    public synchronized void record(long duration, TimeUnit unit)
+    {
+        samples[(int) (count % samples.length)] = unit.toNanos(duration);
+        count++;
+    }
+
+    public synchronized long getCount()
+    {
+        return count;
+    }
+
+    /**
+     * Returns the given percentiles of the recorded samples in milliseconds, or zeros if there are no samples yet.
+     */
+    public double[] percentiles(double... percentiles)
+    {
+        long[] sorted;
+        synchronized (this) {
+            sorted = Arrays.copyOf(samples, (int) Math.min(count, samples.length));
+        }
+        Arrays.sort(sorted);
+
+        double[] result = new double[percentiles.length];
+        if (sorted.length == 0) {
+            return result;
+        }
+        for (int i = 0; i < percentiles.length; i++) {
+            int index = (int) Math.ceil(percentiles[i] / 100 * sorted.length) - 1;
+            result[i] = sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1_000_000.0;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,438 @@
+package org.rakam.client.server;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.base.Joiner;
+import com.google.common.base.Splitter;
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Resources;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import io.swagger.codegen.config.CodegenConfigurator;
+import io.swagger.models.Swagger;
+import org.commonmark.parser.Parser;
+import org.commonmark.renderer.html.HtmlRenderer;
+import org.rakam.client.builder.document.ExampleLimits;
+import org.rakam.client.builder.document.RenderBudget;
+import org.rakam.client.builder.document.SlateDocumentGenerator;
+import org.rakam.client.spec.ExternalRefResolver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static java.lang.String.format;
+
+/**
+ * Renders specs over HTTP for previews.
+ *
+ * <ul>
+ * <li>{@code POST /render} renders the spec in the request body</li>
+ * <li>{@code GET /render?spec=<path or url>} renders the spec at the given location</li>
+ * <li>{@code GET /stats} returns the cache and render latency statistics</li>
+ * </ul>
+ *
+ * The render endpoints accept {@code format=markdown|html} and {@code languages=java,python} parameters. Rendered
+ * documents are cached by the hash of the spec content, the hashes of the documents it references and these
+ * parameters, the cache is bounded by the total size of the documents and evicts the least recently used ones.
+ *
+ * The specs and the documents they reference must be in the spec root, the relative refs of a posted spec are
+ * resolved against it. Urls are only read if remote specs are allowed. The locations of the referenced documents are
+ * checked before they're read.
+ */
+public class PreviewServer
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(PreviewServer.class);
+    private static final ObjectMapper mapper = new ObjectMapper();
+    private static final double[] PERCENTILES = {50, 90, 99};
+    // the nominal location of a posted spec, its relative refs are resolved against the spec root
+    private static final String POSTED_SPEC = "posted-spec.json";
+
+    private final Map<String, CodegenConfigurator> configurators;
+    private final ExampleLimits limits;
+    private final RenderBudget budget;
+    private final int enumTableThreshold;
+    private final boolean validate;
+    private final Path specRoot;
+    private final boolean allowRemoteSpecs;
+    private final Map<List<String>, SlateDocumentGenerator> generators;
+    private final Cache<String, String> cache;
+    // the documents that the specs referenced when they were parsed, by the hash of the spec content
+    private final Cache<HashCode, List<String>> references;
+    private final LatencyRecorder renderLatency;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    public PreviewServer(List<CodegenConfigurator> configurators, ExampleLimits limits, RenderBudget budget, int enumTableThreshold,
+            boolean validate, Path specRoot, boolean allowRemoteSpecs, InetSocketAddress address, long maxCacheBytes)
+            throws IOException
+    {
+        if (!Files.isDirectory(specRoot)) {
+            throw new IllegalArgumentException(format("Spec root %s is not a directory", specRoot));
+        }
+        this.configurators = new LinkedHashMap<>();
+        configurators.forEach(c -> this.configurators.put(c.getLang(), c));
+        this.limits = limits;
+        this.budget = budget;
+        this.enumTableThreshold = enumTableThreshold;
+        this.validate = validate;
+        this.specRoot = specRoot.toRealPath();
+        this.allowRemoteSpecs = allowRemoteSpecs;
+        this.generators = new ConcurrentHashMap<>();
+        // prepare the default language set eagerly so that unsupported languages fail on startup
+        this.generators.put(ImmutableList.copyOf(this.configurators.keySet()), new SlateDocumentGenerator(ImmutableList.copyOf(configurators), limits, budget, enumTableThreshold, validate));
+
+        this.cache = CacheBuilder.newBuilder()
+                .maximumWeight(maxCacheBytes)
+                .weigher((String key, String value) -> value.length() * 2)
+                .recordStats()
+                .build();
+        this.references = CacheBuilder.newBuilder()
+                .maximumSize(4096)
+                .build();
+        this.renderLatency = new LatencyRecorder(1024);
+
+        this.executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        this.server = HttpServer.create(address, 0);
+        this.server.setExecutor(executor);
+        this.server.createContext("/render", handler(this::render));
+        this.server.createContext("/stats", handler(this::stats));
+    }
+
+    public void start()
+    {
+        server.start();
+        LOGGER.info("Preview server is listening on {}", getAddress());
+    }
+
+    public void stop()
+    {
+        server.stop(0);
+        executor.shutdown();
+    }
+
+    public InetSocketAddress getAddress()
+    {
+        return server.getAddress();
+    }
+
+    private void render(HttpExchange exchange)
+            throws IOException
+    {
+        Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+        Format format = Format.get(query.get("format"));
+        List<String> languages = languages(query.get("languages"));
+
+        byte[] content;
+        String location;
+        if ("POST".equals(exchange.getRequestMethod())) {
+            content = ByteStreams.toByteArray(exchange.getRequestBody());
+            location = specRoot.resolve(POSTED_SPEC).toString();
+        }
+        else if ("GET".equals(exchange.getRequestMethod()) && query.containsKey("spec")) {
+            location = location(query.get("spec"));
+            content = isRemote(location) ? Resources.toByteArray(new URL(location)) : Files.readAllBytes(Paths.get(location));
+        }
+        else {
+            throw new IllegalArgumentException("Spec must be posted as request body or set with spec parameter");
+        }
+
+        HashCode contentHash = Hashing.sha256().hashBytes(content);
+        String parameters = "/" + Joiner.on(',').join(languages) + "/" + format;
+        String key = cachedKey(contentHash, parameters);
+        Swagger swagger = null;
+        if (key == null) {
+            Map<String, String> documents = new TreeMap<>();
+            swagger = parse(content, location, contentHash, documents);
+            key = key(contentHash, documents, parameters);
+        }
+
+        Swagger parsed = swagger;
+        String document;
+        try {
+            document = cache.get(key, () -> {
+                // the document may have been evicted since it was looked up
+                Swagger spec = parsed != null ? parsed : parse(content, location, contentHash, new TreeMap<>());
+                long start = System.nanoTime();
+                String rendered = format.render(generator(languages).render(spec).toString());
+                renderLatency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                return rendered;
+            });
+        }
+        catch (ExecutionException | UncheckedExecutionException e) {
+            throw Throwables.propagate(e.getCause());
+        }
+
+        respond(exchange, 200, format.contentType, document);
+    }
+
+    /**
+     * Returns the key of the cached document of a spec that was rendered before, or null if it's not cached. The
+     * documents that the spec referenced are read again for every request so that their changes invalidate the
+     * cached document, but the spec itself is only parsed on a miss.
+     */
+    private String cachedKey(HashCode contentHash, String parameters)
+    {
+        List<String> referenced = references.getIfPresent(contentHash);
+        if (referenced == null) {
+            return null;
+        }
+        Map<String, String> documents = new TreeMap<>();
+        for (String location : referenced) {
+            if (!isAllowed(location)) {
+                return null;
+            }
+            try {
+                documents.put(location, ExternalRefResolver.hash(location, ImmutableList.of()));
+            }
+            catch (IOException e) {
+                // the spec is parsed again and reports the error
+                return null;
+            }
+        }
+        String key = key(contentHash, documents, parameters);
+        return cache.asMap().containsKey(key) ? key : null;
+    }
+
+    private Swagger parse(byte[] content, String location, HashCode contentHash, Map<String, String> documents)
+    {
+        Swagger swagger = SlateDocumentGenerator.parseSwagger(new String(content, StandardCharsets.UTF_8), location, documents, this::isAllowed);
+        references.put(contentHash, ImmutableList.copyOf(documents.keySet()));
+        return swagger;
+    }
+
+    private static String key(HashCode contentHash, Map<String, String> documents, String parameters)
+    {
+        Hasher hasher = Hashing.sha256().newHasher().putBytes(contentHash.asBytes());
+        documents.forEach((path, hash) -> hasher.putString(path, StandardCharsets.UTF_8).putString(hash, StandardCharsets.UTF_8));
+        return hasher.hash() + parameters;
+    }
+
+    private void stats(HttpExchange exchange)
+            throws IOException
+    {
+        CacheStats stats = cache.stats();
+        double[] latency = renderLatency.percentiles(PERCENTILES);
+
+        Map<String, Object> cacheStats = new LinkedHashMap<>();
+        cacheStats.put("size", cache.size());
+        cacheStats.put("hits", stats.hitCount());
+        cacheStats.put("misses", stats.missCount());
+        cacheStats.put("hitRate", stats.hitRate());
+        cacheStats.put("missRate", stats.missRate());
+        cacheStats.put("evictions", stats.evictionCount());
+
+        Map<String, Object> latencyStats = new LinkedHashMap<>();
+        latencyStats.put("count", renderLatency.getCount());
+        for (int i = 0; i < PERCENTILES.length; i++) {
+            latencyStats.put(format("p%d", (int) PERCENTILES[i]), latency[i]);
+        }
+
+        String json = mapper.writerWithDefaultPrettyPrinter().writeValueAsString(
+                ImmutableMap.of("cache", cacheStats, "renderLatencyMillis", latencyStats));
+        respond(exchange, 200, "application/json", json);
+    }
+
+    private SlateDocumentGenerator generator(List<String> languages)
+    {
+        return generators.computeIfAbsent(languages, key -> {
+            try {
+                return new SlateDocumentGenerator(ImmutableList.copyOf(key.stream()
+                        .map(configurators::get)
+                        .collect(Collectors.toList())), limits, budget, enumTableThreshold, validate);
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private List<String> languages(String parameter)
+    {
+        if (parameter == null) {
+            return ImmutableList.copyOf(configurators.keySet());
+        }
+        List<String> languages = ImmutableList.copyOf(Splitter.on(',').trimResults().omitEmptyStrings().split(parameter));
+        for (String language : languages) {
+            if (!configurators.containsKey(language)) {
+                throw new IllegalArgumentException(format("Language %s is not enabled in this server.", language));
+            }
+        }
+        return languages;
+    }
+
+    /**
+     * Returns the url or the real path of a spec parameter, relative paths are resolved against the spec root.
+     */
+    private String location(String spec)
+            throws IOException
+    {
+        if (isRemote(spec)) {
+            checkLocation(spec);
+            return spec;
+        }
+        Path path = specRoot.resolve(spec).normalize();
+        checkLocation(path.toString());
+        if (!Files.isRegularFile(path)) {
+            throw new IllegalArgumentException(format("Spec %s does not exist", spec));
+        }
+        // the symbolic links may point out of the spec root
+        String realPath = path.toRealPath().toString();
+        checkLocation(realPath);
+        return realPath;
+    }
+
+    private void checkLocation(String location)
+    {
+        if (!isAllowed(location)) {
+            if (isRemote(location)) {
+                throw new IllegalArgumentException(format("Remote spec %s is not allowed in this server.", location));
+            }
+            throw new IllegalArgumentException(format("Spec %s is not in the spec root of this server.", location));
+        }
+    }
+
+    private boolean isAllowed(String location)
+    {
+        if (isRemote(location)) {
+            return allowRemoteSpecs;
+        }
+        return Paths.get(location).normalize().startsWith(specRoot);
+    }
+
+    private static boolean isRemote(String location)
+    {
+        String lowerCase = location.toLowerCase(Locale.ENGLISH);
+        return lowerCase.startsWith("http:") || lowerCase.startsWith("https:");
+    }
+
+    private static Map<String, String> parseQuery(String query)
+            throws IOException
+    {
+        Map<String, String> parameters = new HashMap<>();
+        if (query == null) {
+            return parameters;
+        }
+        for (String parameter : Splitter.on('&').omitEmptyStrings().split(query)) {
+            int idx = parameter.indexOf('=');
+            String name = idx < 0 ? parameter : parameter.substring(0, idx);
+            String value = idx < 0 ? "" : parameter.substring(idx + 1);
+            parameters.put(URLDecoder.decode(name, "UTF-8"), URLDecoder.decode(value, "UTF-8"));
+        }
+        return parameters;
+    }
+
+    private static HttpHandler handler(ExchangeHandler handler)
+    {
+        return exchange -> {
+            try {
+                handler.handle(exchange);
+            }
+            catch (IllegalArgumentException e) {
+                respond(exchange, 400, "text/plain", String.valueOf(e.getMessage()));
+            }
+            catch (Exception e) {
+                LOGGER.error(format("An error occurred while handling %s", exchange.getRequestURI()), e);
+                respond(exchange, 500, "text/plain", String.valueOf(e.getMessage()));
+            }
+            finally {
+                exchange.close();
+            }
+        };
+    }
+
+    private static void respond(HttpExchange exchange, int status, String contentType, String body)
+            throws IOException
+    {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", contentType + "; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(bytes);
+        }
+    }
+
+    private interface ExchangeHandler
+    {
+        void handle(HttpExchange exchange)
+                throws IOException;
+    }
+
+    private enum Format
+    {
+        MARKDOWN("text/markdown"), HTML("text/html");
+
+        private static final Parser parser = Parser.builder().build();
+        private static final HtmlRenderer renderer = HtmlRenderer.builder().build();
+
+        private final String contentType;
+
+        Format(String contentType)
+        {
+            this.contentType = contentType;
+        }
+
+        public String render(String markdown)
+        {
+            if (this == MARKDOWN) {
+                return markdown;
+            }
+            return "<!DOCTYPE html>\n<html>\n<head><meta charset=\"utf-8\"></head>\n<body>\n"
+                    + renderer.render(parser.parse(stripFrontMatter(markdown)))
+                    + "</body>\n</html>\n";
+        }
+
+        private static String stripFrontMatter(String markdown)
+        {
+            if (!markdown.startsWith("---")) {
+                return markdown;
+            }
+            int end = markdown.indexOf("\n---", 3);
+            return end < 0 ? markdown : markdown.substring(markdown.indexOf('\n', end + 1) + 1);
+        }
+
+        public static Format get(String name)
+        {
+            if (name == null || name.equals("md")) {
+                return MARKDOWN;
+            }
+            try {
+                return valueOf(name.toUpperCase(Locale.ENGLISH));
+            }
+            catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException(format("Format %s is not supported.", name));
+            }
+        }
+    }
+}
@@ -0,0 +1,420 @@
+package org.rakam.client.spec;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
+import io.swagger.models.ArrayModel;
+import io.swagger.models.ComposedModel;
+import io.swagger.models.Model;
+import io.swagger.models.ModelImpl;
+import io.swagger.models.Operation;
+import io.swagger.models.RefModel;
+import io.swagger.models.RefPath;
+import io.swagger.models.RefResponse;
+import io.swagger.models.Response;
+import io.swagger.models.Swagger;
+import io.swagger.models.auth.AuthorizationValue;
+import io.swagger.models.parameters.BodyParameter;
+import io.swagger.models.parameters.Parameter;
+import io.swagger.models.parameters.RefParameter;
+import io.swagger.models.parameters.SerializableParameter;
+import io.swagger.models.properties.ArrayProperty;
+import io.swagger.models.properties.MapProperty;
+import io.swagger.models.properties.ObjectProperty;
+import io.swagger.models.properties.Property;
+import io.swagger.models.properties.RefProperty;
+import io.swagger.models.refs.GenericRef;
+import io.swagger.models.refs.RefFormat;
+import io.swagger.models.refs.RefType;
+import io.swagger.parser.ResolverCache;
+import io.swagger.parser.processors.DefinitionsProcessor;
+import io.swagger.parser.processors.PathsProcessor;
+import io.swagger.parser.util.DeserializationUtils;
+import io.swagger.parser.util.RemoteUrl;
+import org.rakam.client.utils.IoExecutors;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Predicate;
+
+import static java.lang.String.format;
+
+/**
+ * Resolves the external {@code $ref}s of a spec like {@link io.swagger.parser.SwaggerResolver}, but reads and
+ * parses each referenced document only once.
+ *
+ * The parser's own cache keeps the content of the referenced files but parses the file again for every distinct
+ * ref into it. Here each document is parsed into a tree once per run, keyed by its canonical path, and the trees are
+ * shared between runs by content hash. Documents are loaded in parallel as soon as a loaded document references
+ * them, so the resolution itself only walks trees that are already in memory. The documents are loaded on
+ * {@link IoExecutors#shared()}, which uses virtual threads on Java 21.
+ *
+ * The location of each referenced document is checked against the given policy before it's read, so a spec can't
+ * make the resolver read files or urls that the caller doesn't allow.
+ */
+public final class ExternalRefResolver
+{
+    private static final String REF = "$ref";
+    // parsed documents by content hash, shared between runs
+    private static final Cache<String, JsonNode> documents = CacheBuilder.newBuilder()
+            .maximumSize(512)
+            .softValues()
+            .build();
+
+    private ExternalRefResolver()
+    {
+    }
+
+    /**
+     * Resolves the external refs of a spec that was read without resolution.
+     */
+    public static Swagger resolve(Swagger swagger, String location, List<AuthorizationValue> auths)
+    {
+        return resolve(swagger, location, auths, new HashMap<>());
+    }
+
+    /**
+     * Resolves the external refs of a spec that was read without resolution and puts the sha256 of the content of
+     * each referenced document into {@code documents}, keyed by the canonical path or the url of the document.
+     */
+    public static Swagger resolve(Swagger swagger, String location, List<AuthorizationValue> auths, Map<String, String> documents)
+    {
+        return resolve(swagger, location, auths, documents, document -> true);
+    }
+
+    /**
+     * Resolves the external refs like {@link #resolve(Swagger, String, List, Map)}, but only reads the referenced
+     * documents whose canonical path or url is allowed by {@code allowed}. The others fail the resolution with an
+     * {@link IllegalArgumentException}.
+     */
+    public static Swagger resolve(Swagger swagger, String location, List<AuthorizationValue> auths, Map<String, String> documents,
+            Predicate<String> allowed)
+    {
+        List<String> refs = new ArrayList<>();
+        collectRefs(swagger, refs);
+        if (refs.isEmpty()) {
+            // the processors have nothing to rewrite
+            return swagger;
+        }
+
+        MemoizingResolverCache cache = new MemoizingResolverCache(swagger, auths, location, allowed);
+        cache.prefetch(refs);
+        new PathsProcessor(cache, swagger).processPaths();
+        new DefinitionsProcessor(cache, swagger).processDefinitions();
+        documents.putAll(cache.hashes);
+        return swagger;
+    }
+
+    /**
+     * Returns the sha256 of the content of a referenced document, as {@link #resolve(Swagger, String, List, Map)}
+     * puts it into the documents.
+     */
+    public static String hash(String document, List<AuthorizationValue> auths)
+            throws IOException
+    {
+        return hash(read(document, isUrl(document), auths));
+    }
+
+    private static String hash(String contents)
+    {
+        return Hashing.sha256().hashString(contents, StandardCharsets.UTF_8).toString();
+    }
+
+    private static boolean isUrl(String location)
+    {
+        return location.startsWith("http");
+    }
+
+    private static String read(String location, boolean url, List<AuthorizationValue> auths)
+            throws IOException
+    {
+        if (!url) {
+            return new String(Files.readAllBytes(Paths.get(location)), StandardCharsets.UTF_8);
+        }
+        try {
+            return RemoteUrl.urlToString(location, auths);
+        }
+        catch (Exception e) {
+            Throwables.propagateIfInstanceOf(e, IOException.class);
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * Collects the refs that the processors of the parser rewrite: the external refs, and the refs of the paths,
+     * parameters and responses, which are replaced with their targets even if they're internal.
+     */
+    private static void collectRefs(Swagger swagger, List<String> refs)
+    {
+        if (swagger.getPaths() != null) {
+            for (io.swagger.models.Path path : swagger.getPaths().values()) {
+                if (path instanceof RefPath) {
+                    refs.add(((RefPath) path).get$ref());
+                    continue;
+                }
+                collectParameterRefs(path.getParameters(), refs);
+                for (Operation operation : path.getOperations()) {
+                    collectParameterRefs(operation.getParameters(), refs);
+                    if (operation.getResponses() != null) {
+                        for (Response response : operation.getResponses().values()) {
+                            if (response instanceof RefResponse) {
+                                refs.add(((RefResponse) response).get$ref());
+                            }
+                            else if (response != null) {
+                                collectRefs(response.getSchema(), refs);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        if (swagger.getDefinitions() != null) {
+            swagger.getDefinitions().values().forEach(model -> collectRefs(model, refs));
+        }
+    }
+
+    private static void collectParameterRefs(List<Parameter> parameters, List<String> refs)
+    {
+        if (parameters == null) {
+            return;
+        }
+        for (Parameter parameter : parameters) {
+            if (parameter instanceof RefParameter) {
+                refs.add(((RefParameter) parameter).get$ref());
+            }
+            else if (parameter instanceof BodyParameter) {
+                collectRefs(((BodyParameter) parameter).getSchema(), refs);
+            }
+            else if (parameter instanceof SerializableParameter) {
+                collectRefs(((SerializableParameter) parameter).getItems(), refs);
+            }
+        }
+    }
+
+    private static void collectRefs(Model model, List<String> refs)
+    {
+        if (model instanceof RefModel) {
+            RefModel ref = (RefModel) model;
+            if (ref.getRefFormat() != RefFormat.INTERNAL) {
+                refs.add(ref.get$ref());
+            }
+            return;
+        }
+        if (model instanceof ArrayModel) {
+            collectRefs(((ArrayModel) model).getItems(), refs);
+        }
+        else if (model instanceof ComposedModel && ((ComposedModel) model).getAllOf() != null) {
+            ((ComposedModel) model).getAllOf().forEach(part -> collectRefs(part, refs));
+        }
+        else if (model instanceof ModelImpl) {
+            collectRefs(((ModelImpl) model).getAdditionalProperties(), refs);
+        }
+        if (model != null && model.getProperties() != null) {
+            model.getProperties().values().forEach(property -> collectRefs(property, refs));
+        }
+    }
+
+    private static void collectRefs(Property property, List<String> refs)
+    {
+        if (property instanceof RefProperty) {
+            RefProperty ref = (RefProperty) property;
+            if (ref.getRefFormat() != RefFormat.INTERNAL) {
+                refs.add(ref.get$ref());
+            }
+        }
+        else if (property instanceof ArrayProperty) {
+            collectRefs(((ArrayProperty) property).getItems(), refs);
+        }
+        else if (property instanceof MapProperty) {
+            collectRefs(((MapProperty) property).getAdditionalProperties(), refs);
+        }
+        else if (property instanceof ObjectProperty && ((ObjectProperty) property).getProperties() != null) {
+            ((ObjectProperty) property).getProperties().values().forEach(nested -> collectRefs(nested, refs));
+        }
+    }
+
+    private static class MemoizingResolverCache
+            extends ResolverCache
+    {
+        private final List<AuthorizationValue> auths;
+        private final Path parentDirectory;
+        private final Map<String, CompletableFuture<JsonNode>> loading;
+        private final Map<String, String> hashes;
+        private final Map<String, Object> resolved;
+        private final Predicate<String> allowed;
+
+        public MemoizingResolverCache(Swagger swagger, List<AuthorizationValue> auths, String location, Predicate<String> allowed)
+        {
+            super(swagger, auths, location);
+            this.auths = auths;
+            this.allowed = allowed;
+            // the parser resolves all relative refs against the directory of the root spec
+            if (location == null) {
+                this.parentDirectory = new File(".").toPath();
+            }
+            else if (isUrl(location)) {
+                this.parentDirectory = null;
+            }
+            else {
+                this.parentDirectory = Paths.get(location).toAbsolutePath().getParent();
+            }
+            this.loading = new ConcurrentHashMap<>();
+            this.hashes = new ConcurrentHashMap<>();
+            this.resolved = new HashMap<>();
+        }
+
+        @Override
+        public <T> T loadRef(String ref, RefFormat refFormat, Class<T> expectedType)
+        {
+            if (refFormat == RefFormat.INTERNAL) {
+                return super.loadRef(ref, refFormat, expectedType);
+            }
+
+            Object previouslyResolved = resolved.get(ref);
+            if (previouslyResolved != null) {
+                return expectedType.cast(previouslyResolved);
+            }
+
+            String[] refParts = ref.split("#/");
+            if (refParts.length > 2) {
+                throw new RuntimeException("Invalid ref format: " + ref);
+            }
+            String file = refParts[0];
+            JsonNode node = document(file, refFormat);
+            if (refParts.length == 2) {
+                for (String element : refParts[1].split("/")) {
+                    node = node.get(element);
+                    if (node == null) {
+                        throw new RuntimeException(format("Could not find %s in contents of %s", refParts[1], file));
+                    }
+                }
+            }
+
+            T result = DeserializationUtils.deserialize(node, file, expectedType);
+            resolved.put(ref, result);
+            return result;
+        }
+
+        /**
+         * Starts loading the documents referenced from the given tree in the background.
+         */
+        public void prefetch(JsonNode tree)
+        {
+            List<String> refs = new ArrayList<>();
+            collectRefs(tree, refs);
+            prefetch(refs);
+        }
+
+        /**
+         * Starts loading the documents of the given refs in the background.
+         */
+        public void prefetch(List<String> refs)
+        {
+            for (String ref : refs) {
+                RefFormat format = new GenericRef(RefType.DEFINITION, ref).getFormat();
+                if (format == RefFormat.INTERNAL || (format == RefFormat.RELATIVE && parentDirectory == null)) {
+                    continue;
+                }
+                load(ref.split("#/")[0], format);
+            }
+        }
+
+        private JsonNode document(String file, RefFormat format)
+        {
+            try {
+                return load(file, format).get();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw Throwables.propagate(e);
+            }
+            catch (ExecutionException e) {
+                throw Throwables.propagate(e.getCause());
+            }
+        }
+
+        private CompletableFuture<JsonNode> load(String file, RefFormat format)
+        {
+            String key;
+            if (format == RefFormat.URL) {
+                key = checkAllowed(file);
+            }
+            else {
+                // the path is checked before the file system is touched, the real path in case it's a symbolic link
+                Path path = parentDirectory.resolve(file).normalize();
+                checkAllowed(path.toString());
+                key = checkAllowed(canonicalPath(path));
+            }
+            return loading.computeIfAbsent(key, k -> CompletableFuture.supplyAsync(() -> {
+                String contents;
+                try {
+                    contents = read(k, format == RefFormat.URL, auths);
+                }
+                catch (IOException e) {
+                    throw new RuntimeException("Unable to load " + format + " ref: " + file, e);
+                }
+                String hash = hash(contents);
+                hashes.put(k, hash);
+                JsonNode tree = documents.getIfPresent(hash);
+                if (tree == null) {
+                    tree = DeserializationUtils.deserializeIntoTree(contents, file);
+                    documents.put(hash, tree);
+                }
+                prefetch(tree);
+                return tree;
+            }, IoExecutors.shared()));
+        }
+
+        private String checkAllowed(String location)
+        {
+            if (!allowed.test(location)) {
+                throw new IllegalArgumentException(format("Referenced document %s is not allowed", location));
+            }
+            return location;
+        }
+
+        private static String canonicalPath(Path path)
+        {
+            try {
+                return path.toRealPath().toString();
+            }
+            catch (IOException e) {
+                // the error is reported when the ref is resolved
+                return path.toString();
+            }
+        }
+
+        private static void collectRefs(JsonNode node, List<String> refs)
+        {
+            if (node.isObject()) {
+                JsonNode ref = node.get(REF);
+                if (ref != null && ref.isTextual()) {
+                    refs.add(ref.asText());
+                }
+                Iterator<JsonNode> fields = node.elements();
+                while (fields.hasNext()) {
+                    collectRefs(fields.next(), refs);
+                }
+            }
+            else if (node.isArray()) {
+                for (JsonNode element : node) {
+                    collectRefs(element, refs);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package org.rakam.client.spec;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.collect.ImmutableList;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteStreams;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.CacheRequest;
+import java.net.CacheResponse;
+import java.net.HttpURLConnection;
+import java.net.ResponseCache;
+import java.net.URI;
+import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import static java.lang.String.format;
+
+/**
+ * Disk cache for the remote specs and the remote documents they reference.
+ *
+ * The parser fetches documents with {@link URLConnection}, so the cache is installed as the default
+ * {@link ResponseCache}. Each GET request is sent as a conditional request with the {@code ETag} and
+ * {@code Last-Modified} of the cached copy, and the cached copy is used if the server responds with 304. In offline
+ * mode no requests are sent and only the cached copies are used.
+ */
+public class HttpSpecCache
+        extends ResponseCache
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(HttpSpecCache.class);
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    private final File directory;
+    private final boolean offline;
+
+    public HttpSpecCache(File directory, boolean offline)
+    {
+        this.directory = directory;
+        this.offline = offline;
+    }
+
+    public void install()
+    {
+        directory.mkdirs();
+        ResponseCache.setDefault(this);
+    }
+
+    public static boolean isInstalled()
+    {
+        return ResponseCache.getDefault() instanceof HttpSpecCache;
+    }
+
+    @Override
+    public CacheResponse get(URI uri, String method, Map<String, List<String>> requestHeaders)
+            throws IOException
+    {
+        String scheme = uri.getScheme() == null ? "" : uri.getScheme().toLowerCase(Locale.ENGLISH);
+        if (!"GET".equals(method) || !(scheme.equals("http") || scheme.equals("https"))) {
+            return null;
+        }
+
+        String key = Hashing.sha256().hashString(uri.toString(), StandardCharsets.UTF_8).toString();
+        File body = new File(directory, key + ".body");
+        File metadata = new File(directory, key + ".json");
+        boolean cached = body.isFile() && metadata.isFile();
+
+        if (offline) {
+            if (!cached) {
+                throw new IOException(format("%s is not in the cache and offline mode is enabled", uri));
+            }
+            return response(Files.readAllBytes(body.toPath()));
+        }
+
+        HttpURLConnection connection = (HttpURLConnection) uri.toURL().openConnection();
+        // bypass this cache for the actual request
+        connection.setUseCaches(false);
+        for (Map.Entry<String, List<String>> header : requestHeaders.entrySet()) {
+            if (header.getKey() != null) {
+                for (String value : header.getValue()) {
+                    connection.addRequestProperty(header.getKey(), value);
+                }
+            }
+        }
+        if (cached) {
+            ObjectNode node = (ObjectNode) mapper.readTree(metadata);
+            if (node.hasNonNull("etag")) {
+                connection.setRequestProperty("If-None-Match", node.get("etag").asText());
+            }
+            if (node.hasNonNull("lastModified")) {
+                connection.setRequestProperty("If-Modified-Since", node.get("lastModified").asText());
+            }
+        }
+
+        int status;
+        try {
+            status = connection.getResponseCode();
+        }
+        catch (IOException e) {
+            if (!cached) {
+                throw e;
+            }
+            LOGGER.warn("{} could not be fetched, using the cached copy: {}", uri, e.getMessage());
+            return response(Files.readAllBytes(body.toPath()));
+        }
+
+        if (status == HttpURLConnection.HTTP_NOT_MODIFIED && cached) {
+            LOGGER.debug("{} is not modified, using the cached copy", uri);
+            return response(Files.readAllBytes(body.toPath()));
+        }
+        if (status != HttpURLConnection.HTTP_OK) {
+            // let the caller handle the error with its own request
+            connection.disconnect();
+            return null;
+        }
+
+        byte[] content;
+        try (InputStream input = connection.getInputStream()) {
+            content = ByteStreams.toByteArray(input);
+        }
+
+        ObjectNode node = mapper.createObjectNode();
+        node.put("uri", uri.toString());
+        node.put("etag", connection.getHeaderField("ETag"));
+        node.put("lastModified", connection.getHeaderField("Last-Modified"));
+        write(body, content);
+        write(metadata, mapper.writeValueAsBytes(node));
+
+        return response(content);
+    }
+
+    @Override
+    public CacheRequest put(URI uri, URLConnection connection)
+    {
+        // responses are stored while they are fetched in get
+        return null;
+    }
+
+    private void write(File file, byte[] content)
+            throws IOException
+    {
+        File temporary = File.createTempFile(file.getName(), ".tmp", directory);
+        Files.write(temporary.toPath(), content);
+        Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static CacheResponse response(byte[] content)
+    {
+        return new CacheResponse()
+        {
+            @Override
+            public Map<String, List<String>> getHeaders()
+            {
+                Map<String, List<String>> headers = new HashMap<>();
+                // the status line has a null key
+                headers.put(null, ImmutableList.of("HTTP/1.1 200 OK"));
+                headers.put("Content-Length", ImmutableList.of(String.valueOf(content.length)));
+                return headers;
+            }
+
+            @Override
+            public InputStream getBody()
+            {
+                return new ByteArrayInputStream(content);
+            }
+        };
+    }
+}
@@ -0,0 +1,389 @@
+package org.rakam.client.spec;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Ordering;
+import io.swagger.models.Model;
+import io.swagger.models.Path;
+import io.swagger.models.Swagger;
+import io.swagger.models.refs.GenericRef;
+import io.swagger.models.refs.RefFormat;
+import io.swagger.models.refs.RefType;
+import io.swagger.util.Json;
+import org.rakam.client.builder.document.SlateDocumentGenerator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
+
+import static java.lang.String.format;
+
+/**
+ * Loads large JSON specs without materializing the paths and definitions up front.
+ *
+ * The spec file is memory-mapped and scanned once with the streaming parser. The small top-level fields are read
+ * as usual, but for each path item and definition only the byte range of its value is recorded. The maps returned by
+ * {@link Swagger#getPaths()} and {@link Swagger#getDefinitions()} parse an entry from its range when it's accessed
+ * and keep it with a soft reference, so entries that were already rendered can be collected under memory pressure
+ * and are parsed again if they're needed later. The entries that are modified after they're parsed, such as the
+ * operations the code generation adds the path level parameters to, must be held with {@link #hold(Map, Collection)}
+ * until they're rendered so that the changes are not lost.
+ *
+ * External refs need the resolver to rewrite the model, so specs that contain them, YAML specs and specs that are
+ * not local files are read with {@link SlateDocumentGenerator#readSwagger(String, String)} instead.
+ */
+public final class LazySwaggerLoader
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(LazySwaggerLoader.class);
+    private static final String REF = "$ref";
+    private static final String PATHS = "paths";
+    private static final String DEFINITIONS = "definitions";
+
+    private LazySwaggerLoader()
+    {
+    }
+
+    public static Swagger read(String inputSpec, String auth)
+            throws IOException
+    {
+        File specFile = new File(inputSpec);
+        if (!specFile.isFile() || !inputSpec.toLowerCase(Locale.ENGLISH).endsWith(".json")) {
+            LOGGER.info("Lazy loading only supports local JSON files, reading {} as usual.", inputSpec);
+            return SlateDocumentGenerator.readSwagger(inputSpec, auth);
+        }
+
+        Swagger swagger = load(specFile);
+        if (swagger == null) {
+            LOGGER.info("{} has external refs, reading it as usual.", inputSpec);
+            return SlateDocumentGenerator.readSwagger(inputSpec, auth);
+        }
+        return swagger;
+    }
+
+    /**
+     * Returns whether the given map is one of the maps of a lazily loaded spec.
+     */
+    public static boolean isLazy(Map<?, ?> map)
+    {
+        return map instanceof LazyMap;
+    }
+
+    /**
+     * Keeps the entries of the given keys strongly reachable until they're released. Does nothing if the map is not
+     * lazy.
+     */
+    public static void hold(Map<String, ?> map, Collection<String> keys)
+    {
+        if (map instanceof LazyMap) {
+            ((LazyMap<?>) map).hold(keys);
+        }
+    }
+
+    /**
+     * Lets the entries of the given keys be collected again, they're parsed from the spec on the next access.
+     * Does nothing if the map is not lazy.
+     */
+    public static void release(Map<String, ?> map, Collection<String> keys)
+    {
+        if (map instanceof LazyMap) {
+            ((LazyMap<?>) map).release(keys);
+        }
+    }
+
+    /**
+     * Drops the softly referenced entries of the given map as if they were collected.
+     */
+    @VisibleForTesting
+    static void evict(Map<String, ?> map)
+    {
+        ((LazyMap<?>) map).values.invalidateAll();
+    }
+
+    private static Swagger load(File specFile)
+            throws IOException
+    {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(specFile.toPath(), StandardOpenOption.READ)) {
+            // the mapping stays valid after the channel is closed
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        ObjectMapper mapper = Json.mapper();
+        ObjectNode root = mapper.createObjectNode();
+        Map<String, Range> paths = null;
+        Map<String, Range> definitions = null;
+
+        try (JsonParser parser = mapper.getFactory().createParser(new ByteBufferBackedInputStream(buffer.duplicate()))) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IllegalArgumentException("Spec must be a JSON object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                parser.nextToken();
+                if (parser.getCurrentToken() == JsonToken.START_OBJECT && (field.equals(PATHS) || field.equals(DEFINITIONS))) {
+                    Map<String, Range> ranges = index(parser);
+                    if (ranges == null) {
+                        return null;
+                    }
+                    if (field.equals(PATHS)) {
+                        paths = ranges;
+                    }
+                    else {
+                        definitions = ranges;
+                    }
+                }
+                else {
+                    JsonNode value = mapper.readTree(parser);
+                    if (hasExternalRef(value)) {
+                        return null;
+                    }
+                    root.set(field, value);
+                }
+            }
+        }
+
+        Swagger swagger = mapper.convertValue(root, LazySwagger.class);
+        if (swagger == null || !root.has("swagger")) {
+            throw new IllegalArgumentException(format("Unable to read swagger spec %s", specFile));
+        }
+        // the entries are deduplicated when they're parsed, sharing the strings of the whole spec
+        SwaggerDeduplicator deduplicator = new SwaggerDeduplicator();
+        if (paths != null) {
+            // in the sorted order of Swagger#getPaths()
+            swagger.setPaths(new LazyMap<>(buffer, paths, Ordering.natural().sortedCopy(paths.keySet()), Path.class, deduplicator::path));
+        }
+        if (definitions != null) {
+            swagger.setDefinitions(new LazyMap<>(buffer, definitions, definitions.keySet(), Model.class, deduplicator::model));
+        }
+        return swagger;
+    }
+
+    /**
+     * Records the byte range of each value in the object at the current token. Returns null if any of the values
+     * has an external ref.
+     */
+    private static Map<String, Range> index(JsonParser parser)
+            throws IOException
+    {
+        Map<String, Range> ranges = new LinkedHashMap<>();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IllegalArgumentException(format("%s must be an object", name));
+            }
+            // the token location of a value points to its field name, but the current location is right after '{'
+            long start = parser.getCurrentLocation().getByteOffset() - 1;
+            int depth = 1;
+            boolean ref = false;
+            while (depth > 0) {
+                JsonToken token = parser.nextToken();
+                if (token == JsonToken.START_OBJECT || token == JsonToken.START_ARRAY) {
+                    depth++;
+                }
+                else if (token == JsonToken.END_OBJECT || token == JsonToken.END_ARRAY) {
+                    depth--;
+                }
+                else if (token == JsonToken.VALUE_STRING && ref && isExternal(parser.getText())) {
+                    return null;
+                }
+                ref = token == JsonToken.FIELD_NAME && parser.getCurrentName().equals(REF);
+            }
+            ranges.put(name, new Range(start, parser.getCurrentLocation().getByteOffset()));
+        }
+        return ranges;
+    }
+
+    private static boolean hasExternalRef(JsonNode node)
+    {
+        if (node.isObject()) {
+            JsonNode ref = node.get(REF);
+            if (ref != null && ref.isTextual() && isExternal(ref.asText())) {
+                return true;
+            }
+        }
+        for (JsonNode child : node) {
+            if (hasExternalRef(child)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isExternal(String ref)
+    {
+        return new GenericRef(RefType.DEFINITION, ref).getFormat() != RefFormat.INTERNAL;
+    }
+
+    /**
+     * {@link Swagger#getPaths()} copies the paths into a sorted map, which would parse all of them on each call. The
+     * lazy map is returned as is instead, it iterates the paths in the same order.
+     */
+    private static class LazySwagger
+            extends Swagger
+    {
+        @Override
+        public Map<String, Path> getPaths()
+        {
+            return paths;
+        }
+    }
+
+    private static class Range
+    {
+        private final long start;
+        private final long end;
+
+        private Range(long start, long end)
+        {
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    /**
+     * Read-only map that parses its values from the mapped spec on access. The entries are iterated in the order of
+     * the given keys.
+     */
+    private static class LazyMap<V>
+            extends AbstractMap<String, V>
+    {
+        private final ByteBuffer buffer;
+        private final Map<String, Range> ranges;
+        private final Set<String> keys;
+        private final Class<V> type;
+        private final Function<V, V> postProcessor;
+        private final Cache<String, V> values;
+        private final Map<String, V> held;
+
+        private LazyMap(ByteBuffer buffer, Map<String, Range> ranges, Collection<String> keys, Class<V> type, Function<V, V> postProcessor)
+        {
+            this.buffer = buffer;
+            this.ranges = ranges;
+            this.keys = ImmutableSet.copyOf(keys);
+            this.type = type;
+            this.postProcessor = postProcessor;
+            this.values = CacheBuilder.newBuilder().softValues().build();
+            this.held = new ConcurrentHashMap<>();
+        }
+
+        @Override
+        public V get(Object key)
+        {
+            Range range = ranges.get(key);
+            if (range == null) {
+                return null;
+            }
+            V value = held.get(key);
+            if (value != null) {
+                return value;
+            }
+            try {
+                return values.get((String) key, () -> parse(range));
+            }
+            catch (ExecutionException e) {
+                throw Throwables.propagate(e.getCause());
+            }
+        }
+
+        @Override
+        public boolean containsKey(Object key)
+        {
+            return ranges.containsKey(key);
+        }
+
+        @Override
+        public Set<String> keySet()
+        {
+            return keys;
+        }
+
+        @Override
+        public int size()
+        {
+            return keys.size();
+        }
+
+        @Override
+        public Set<Entry<String, V>> entrySet()
+        {
+            return new AbstractSet<Entry<String, V>>()
+            {
+                @Override
+                public Iterator<Entry<String, V>> iterator()
+                {
+                    Iterator<String> iterator = keys.iterator();
+                    return new Iterator<Entry<String, V>>()
+                    {
+                        @Override
+                        public boolean hasNext()
+                        {
+                            return iterator.hasNext();
+                        }
+
+                        @Override
+                        public Entry<String, V> next()
+                        {
+                            String key = iterator.next();
+                            return new SimpleImmutableEntry<>(key, get(key));
+                        }
+                    };
+                }
+
+                @Override
+                public int size()
+                {
+                    return keys.size();
+                }
+            };
+        }
+
+        private void hold(Collection<String> keys)
+        {
+            for (String key : keys) {
+                if (ranges.containsKey(key)) {
+                    held.put(key, get(key));
+                }
+            }
+        }
+
+        private void release(Collection<String> keys)
+        {
+            // the soft reference of a released entry is still in the cache
+            held.keySet().removeAll(keys);
+        }
+
+        private V parse(Range range)
+                throws IOException
+        {
+            ByteBuffer slice = buffer.duplicate();
+            slice.position((int) range.start);
+            slice.limit((int) range.end);
+            return postProcessor.apply(Json.mapper().readValue(new ByteBufferBackedInputStream(slice.slice()), type));
+        }
+    }
+}
@@ -0,0 +1,319 @@
+package org.rakam.client.spec;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Sets;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import io.swagger.models.HttpMethod;
+import io.swagger.models.Model;
+import io.swagger.models.Operation;
+import io.swagger.models.Path;
+import io.swagger.models.Swagger;
+import io.swagger.util.Json;
+import org.rakam.client.builder.document.SlateDocumentGenerator.OperationIdentifier;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Operations and definitions that were added, removed or modified between two versions of a spec.
+ *
+ * Each operation and definition gets a structural hash: the hash of its own content, with the object fields in
+ * sorted order, combined with the hashes of the definitions it references. The content of an operation includes the
+ * parameters and the vendor extensions of its path. A change in a definition therefore
+ * changes the hash of every operation and definition that uses it, directly or transitively, and two versions are
+ * compared by their hashes only. Unchanged entries are skipped without looking into their content.
+ */
+public class SpecDiff
+{
+    private static final HashFunction HASH = Hashing.sha256();
+    private static final String REF = "$ref";
+    private static final String DEFINITION_PREFIX = "#/definitions/";
+
+    private final List<OperationIdentifier> addedOperations = new ArrayList<>();
+    private final List<OperationIdentifier> removedOperations = new ArrayList<>();
+    private final List<OperationIdentifier> modifiedOperations = new ArrayList<>();
+    private final SortedSet<String> addedDefinitions = new TreeSet<>();
+    private final SortedSet<String> removedDefinitions = new TreeSet<>();
+    private final SortedSet<String> modifiedDefinitions = new TreeSet<>();
+
+    public static SpecDiff compare(Swagger oldSwagger, Swagger newSwagger)
+    {
+        StructuralHashes oldHashes = new StructuralHashes(oldSwagger);
+        StructuralHashes newHashes = new StructuralHashes(newSwagger);
+
+        SpecDiff diff = new SpecDiff();
+        Map<OperationIdentifier, HashCode> oldOperations = oldHashes.operationHashes();
+        Map<OperationIdentifier, HashCode> newOperations = newHashes.operationHashes();
+        for (Map.Entry<OperationIdentifier, HashCode> entry : newOperations.entrySet()) {
+            HashCode previous = oldOperations.get(entry.getKey());
+            if (previous == null) {
+                diff.addedOperations.add(entry.getKey());
+            }
+            else if (!previous.equals(entry.getValue())) {
+                diff.modifiedOperations.add(entry.getKey());
+            }
+        }
+        oldOperations.keySet().stream()
+                .filter(operation -> !newOperations.containsKey(operation))
+                .forEach(diff.removedOperations::add);
+
+        Map<String, HashCode> oldDefinitions = oldHashes.definitionHashes();
+        Map<String, HashCode> newDefinitions = newHashes.definitionHashes();
+        for (Map.Entry<String, HashCode> entry : newDefinitions.entrySet()) {
+            HashCode previous = oldDefinitions.get(entry.getKey());
+            if (previous == null) {
+                diff.addedDefinitions.add(entry.getKey());
+            }
+            else if (!previous.equals(entry.getValue())) {
+                diff.modifiedDefinitions.add(entry.getKey());
+            }
+        }
+        diff.removedDefinitions.addAll(Sets.difference(oldDefinitions.keySet(), newDefinitions.keySet()));
+        return diff;
+    }
+
+    public List<OperationIdentifier> getAddedOperations()
+    {
+        return Collections.unmodifiableList(addedOperations);
+    }
+
+    public List<OperationIdentifier> getRemovedOperations()
+    {
+        return Collections.unmodifiableList(removedOperations);
+    }
+
+    public List<OperationIdentifier> getModifiedOperations()
+    {
+        return Collections.unmodifiableList(modifiedOperations);
+    }
+
+    public Set<String> getAddedDefinitions()
+    {
+        return Collections.unmodifiableSet(addedDefinitions);
+    }
+
+    public Set<String> getRemovedDefinitions()
+    {
+        return Collections.unmodifiableSet(removedDefinitions);
+    }
+
+    public Set<String> getModifiedDefinitions()
+    {
+        return Collections.unmodifiableSet(modifiedDefinitions);
+    }
+
+    public boolean isEmpty()
+    {
+        return addedOperations.isEmpty() && removedOperations.isEmpty() && modifiedOperations.isEmpty()
+                && addedDefinitions.isEmpty() && removedDefinitions.isEmpty() && modifiedDefinitions.isEmpty();
+    }
+
+    /**
+     * Returns the operations of the spec by their identifier, in the order of the spec.
+     */
+    public static Map<OperationIdentifier, Operation> operations(Swagger swagger)
+    {
+        Map<OperationIdentifier, Operation> operations = new LinkedHashMap<>();
+        if (swagger.getPaths() != null) {
+            for (Map.Entry<String, Path> path : swagger.getPaths().entrySet()) {
+                for (Map.Entry<HttpMethod, Operation> operation : path.getValue().getOperationMap().entrySet()) {
+                    operations.put(new OperationIdentifier(path.getKey(), operation.getKey().name()), operation.getValue());
+                }
+            }
+        }
+        return operations;
+    }
+
+    private static class StructuralHashes
+    {
+        private final Swagger swagger;
+        private final Map<String, Node> nodes = new HashMap<>();
+        private final Map<String, HashCode> definitions = new TreeMap<>();
+        // state of the strongly connected component search
+        private final Map<String, Integer> index = new HashMap<>();
+        private final Map<String, Integer> lowLink = new HashMap<>();
+        private final Deque<String> stack = new ArrayDeque<>();
+        private final Set<String> onStack = new HashSet<>();
+
+        private StructuralHashes(Swagger swagger)
+        {
+            this.swagger = swagger;
+            if (swagger.getDefinitions() != null) {
+                for (String name : new TreeSet<>(swagger.getDefinitions().keySet())) {
+                    if (!index.containsKey(name)) {
+                        connect(name);
+                    }
+                }
+            }
+        }
+
+        private Map<OperationIdentifier, HashCode> operationHashes()
+        {
+            Map<OperationIdentifier, HashCode> hashes = new LinkedHashMap<>();
+            if (swagger.getPaths() == null) {
+                return hashes;
+            }
+            for (Map.Entry<String, Path> path : swagger.getPaths().entrySet()) {
+                for (Map.Entry<HttpMethod, Operation> operation : path.getValue().getOperationMap().entrySet()) {
+                    // the path level parameters are added to every operation of the path when it's rendered
+                    ObjectNode tree = Json.mapper().createObjectNode();
+                    tree.set("operation", Json.mapper().valueToTree(operation.getValue()));
+                    tree.set("parameters", Json.mapper().valueToTree(path.getValue().getParameters()));
+                    tree.set("extensions", Json.mapper().valueToTree(path.getValue().getVendorExtensions()));
+                    Node node = node(tree);
+                    Hasher hasher = HASH.newHasher().putBytes(node.hash.asBytes());
+                    for (String reference : node.references) {
+                        hasher.putString(reference, StandardCharsets.UTF_8).putBytes(definition(reference).asBytes());
+                    }
+                    hashes.put(new OperationIdentifier(path.getKey(), operation.getKey().name()), hasher.hash());
+                }
+            }
+            return hashes;
+        }
+
+        private Map<String, HashCode> definitionHashes()
+        {
+            Map<String, HashCode> hashes = new TreeMap<>(definitions);
+            // refs to missing definitions are hashed by name but are not definitions of the spec
+            hashes.keySet().retainAll(swagger.getDefinitions() == null ? ImmutableList.of() : swagger.getDefinitions().keySet());
+            return hashes;
+        }
+
+        private HashCode definition(String name)
+        {
+            if (!index.containsKey(name)) {
+                connect(name);
+            }
+            return definitions.get(name);
+        }
+
+        private Node localNode(String name)
+        {
+            return nodes.computeIfAbsent(name, key -> {
+                Model model = swagger.getDefinitions() == null ? null : swagger.getDefinitions().get(key);
+                return model == null
+                        ? new Node(HASH.hashString(key, StandardCharsets.UTF_8), ImmutableList.of())
+                        : node(Json.mapper().valueToTree(model));
+            });
+        }
+
+        /**
+         * Tarjan's algorithm. Definitions that reference each other form a component that is hashed as a unit, after
+         * the components it references, so the hashes don't depend on the order the definitions are visited in.
+         */
+        private void connect(String name)
+        {
+            index.put(name, index.size());
+            lowLink.put(name, index.get(name));
+            stack.push(name);
+            onStack.add(name);
+
+            for (String reference : localNode(name).references) {
+                if (!index.containsKey(reference)) {
+                    connect(reference);
+                    lowLink.put(name, Math.min(lowLink.get(name), lowLink.get(reference)));
+                }
+                else if (onStack.contains(reference)) {
+                    lowLink.put(name, Math.min(lowLink.get(name), index.get(reference)));
+                }
+            }
+
+            if (lowLink.get(name).equals(index.get(name))) {
+                SortedSet<String> component = new TreeSet<>();
+                String member;
+                do {
+                    member = stack.pop();
+                    onStack.remove(member);
+                    component.add(member);
+                }
+                while (!member.equals(name));
+
+                Hasher hasher = HASH.newHasher();
+                for (String definition : component) {
+                    hasher.putString(definition, StandardCharsets.UTF_8).putBytes(localNode(definition).hash.asBytes());
+                    for (String reference : localNode(definition).references) {
+                        if (!component.contains(reference)) {
+                            hasher.putString(reference, StandardCharsets.UTF_8).putBytes(definitions.get(reference).asBytes());
+                        }
+                    }
+                }
+                HashCode hash = hasher.hash();
+                for (String definition : component) {
+                    definitions.put(definition, HASH.newHasher()
+                            .putBytes(hash.asBytes())
+                            .putString(definition, StandardCharsets.UTF_8)
+                            .hash());
+                }
+            }
+        }
+
+        private static Node node(JsonNode tree)
+        {
+            Hasher hasher = HASH.newHasher();
+            SortedSet<String> references = new TreeSet<>();
+            hash(tree, hasher, references);
+            return new Node(hasher.hash(), ImmutableList.copyOf(references));
+        }
+
+        private static void hash(JsonNode node, Hasher hasher, Set<String> references)
+        {
+            if (node.isObject()) {
+                hasher.putByte((byte) '{');
+                List<String> fields = new ArrayList<>();
+                node.fieldNames().forEachRemaining(fields::add);
+                Collections.sort(fields);
+                for (String field : fields) {
+                    JsonNode value = node.get(field);
+                    if (field.equals(REF) && value.isTextual() && value.asText().startsWith(DEFINITION_PREFIX)) {
+                        references.add(value.asText().substring(DEFINITION_PREFIX.length()));
+                    }
+                    hasher.putInt(field.length()).putString(field, StandardCharsets.UTF_8);
+                    hash(value, hasher, references);
+                }
+                hasher.putByte((byte) '}');
+            }
+            else if (node.isArray()) {
+                hasher.putByte((byte) '[');
+                Iterator<JsonNode> elements = node.elements();
+                while (elements.hasNext()) {
+                    hash(elements.next(), hasher, references);
+                    hasher.putByte((byte) ',');
+                }
+                hasher.putByte((byte) ']');
+            }
+            else {
+                hasher.putString(node.toString(), StandardCharsets.UTF_8);
+            }
+        }
+    }
+
+    private static class Node
+    {
+        private final HashCode hash;
+        private final List<String> references;
+
+        private Node(HashCode hash, List<String> references)
+        {
+            this.hash = hash;
+            this.references = references;
+        }
+    }
+}
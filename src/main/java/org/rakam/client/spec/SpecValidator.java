@@ -0,0 +1,204 @@
+package org.rakam.client.spec;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import io.swagger.models.ArrayModel;
+import io.swagger.models.ComposedModel;
+import io.swagger.models.HttpMethod;
+import io.swagger.models.Model;
+import io.swagger.models.ModelImpl;
+import io.swagger.models.Operation;
+import io.swagger.models.Path;
+import io.swagger.models.RefModel;
+import io.swagger.models.Response;
+import io.swagger.models.Swagger;
+import io.swagger.models.parameters.BodyParameter;
+import io.swagger.models.parameters.Parameter;
+import io.swagger.models.parameters.SerializableParameter;
+import io.swagger.models.properties.ArrayProperty;
+import io.swagger.models.properties.MapProperty;
+import io.swagger.models.properties.ObjectProperty;
+import io.swagger.models.properties.Property;
+import io.swagger.models.properties.RefProperty;
+import io.swagger.models.refs.RefFormat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static java.lang.String.format;
+
+/**
+ * Checks a spec for the problems that break the rendering of its operations: refs to missing definitions,
+ * parameters in unsupported locations, body parameters without a schema and operations without responses or without
+ * the schema of their 200 response.
+ *
+ * The check is a single pass over the model that doesn't follow the refs, the paths and definitions are checked in
+ * parallel. It runs before the code generation so that a broken spec fails in milliseconds with all of its problems
+ * instead of logging them one by one while the operations are rendered.
+ */
+public final class SpecValidator
+{
+    private static final Set<String> PARAMETER_LOCATIONS = ImmutableSet.of("path", "body", "header", "formdata", "query");
+    private static final int MAX_REPORTED_PROBLEMS = 100;
+
+    private SpecValidator()
+    {
+    }
+
+    /**
+     * Throws an {@link IllegalArgumentException} that lists all the problems of the given paths and of the
+     * definitions of the spec.
+     */
+    public static void check(Swagger swagger, Map<String, Path> paths)
+    {
+        List<String> problems = validate(swagger, paths);
+        if (problems.isEmpty()) {
+            return;
+        }
+        StringBuilder message = new StringBuilder(format("The spec has %d problems:", problems.size()));
+        problems.stream().limit(MAX_REPORTED_PROBLEMS).forEach(problem -> message.append("\n  ").append(problem));
+        if (problems.size() > MAX_REPORTED_PROBLEMS) {
+            message.append(format("\n  ... and %d more", problems.size() - MAX_REPORTED_PROBLEMS));
+        }
+        throw new IllegalArgumentException(message.toString());
+    }
+
+    /**
+     * Returns the problems of the given paths and of the definitions of the spec, in the order of the spec.
+     */
+    public static List<String> validate(Swagger swagger, Map<String, Path> paths)
+    {
+        Set<String> definitions = swagger.getDefinitions() == null ? ImmutableSet.of() : swagger.getDefinitions().keySet();
+
+        List<String> problems = new ArrayList<>();
+        if (paths != null) {
+            problems.addAll(paths.entrySet().parallelStream()
+                    .flatMap(path -> validatePath(path.getKey(), path.getValue(), definitions).stream())
+                    .collect(Collectors.toList()));
+        }
+        if (swagger.getDefinitions() != null) {
+            problems.addAll(swagger.getDefinitions().entrySet().parallelStream()
+                    .flatMap(definition -> {
+                        List<String> definitionProblems = new ArrayList<>();
+                        validateModel(format("definition '%s'", definition.getKey()), definition.getValue(), definitions, definitionProblems);
+                        return definitionProblems.stream();
+                    })
+                    .collect(Collectors.toList()));
+        }
+        return problems;
+    }
+
+    private static List<String> validatePath(String path, Path item, Set<String> definitions)
+    {
+        if (item == null) {
+            return ImmutableList.of();
+        }
+        List<String> problems = new ArrayList<>();
+        for (Map.Entry<HttpMethod, Operation> entry : item.getOperationMap().entrySet()) {
+            String operation = entry.getKey().name() + " " + path;
+            validateParameters(operation, entry.getValue().getParameters(), definitions, problems);
+
+            Map<String, Response> responses = entry.getValue().getResponses();
+            if (responses == null || responses.isEmpty()) {
+                problems.add(format("%s: has no responses", operation));
+                continue;
+            }
+            for (Map.Entry<String, Response> response : responses.entrySet()) {
+                String location = format("%s: response %s", operation, response.getKey());
+                Property schema = response.getValue() == null ? null : response.getValue().getSchema();
+                if (schema == null) {
+                    // the example of the operation is generated from the schema of the 200 response
+                    if (response.getKey().equals("200")) {
+                        problems.add(format("%s has no schema", location));
+                    }
+                }
+                else {
+                    validateProperty(location, schema, definitions, problems);
+                }
+            }
+        }
+        return problems;
+    }
+
+    private static void validateParameters(String operation, List<Parameter> parameters, Set<String> definitions, List<String> problems)
+    {
+        if (parameters == null) {
+            return;
+        }
+        for (Parameter parameter : parameters) {
+            String location = format("%s: parameter '%s'", operation, parameter.getName());
+            if (parameter.getIn() == null || !PARAMETER_LOCATIONS.contains(parameter.getIn().toLowerCase(Locale.ENGLISH))) {
+                problems.add(format("%s is in unsupported location '%s'", location, parameter.getIn()));
+            }
+            else if (parameter instanceof BodyParameter) {
+                Model schema = ((BodyParameter) parameter).getSchema();
+                if (schema == null) {
+                    problems.add(format("%s has no schema", location));
+                }
+                else {
+                    validateModel(location, schema, definitions, problems);
+                }
+            }
+            else if (parameter instanceof SerializableParameter && ((SerializableParameter) parameter).getItems() != null) {
+                validateProperty(location, ((SerializableParameter) parameter).getItems(), definitions, problems);
+            }
+        }
+    }
+
+    private static void validateModel(String location, Model model, Set<String> definitions, List<String> problems)
+    {
+        if (model == null) {
+            return;
+        }
+        if (model instanceof RefModel) {
+            RefModel ref = (RefModel) model;
+            validateRef(location, ref.getRefFormat(), ref.getSimpleRef(), definitions, problems);
+        }
+        else if (model instanceof ArrayModel) {
+            validateProperty(location, ((ArrayModel) model).getItems(), definitions, problems);
+        }
+        else if (model instanceof ComposedModel) {
+            ComposedModel composed = (ComposedModel) model;
+            if (composed.getAllOf() != null) {
+                composed.getAllOf().forEach(part -> validateModel(location, part, definitions, problems));
+            }
+        }
+        else if (model instanceof ModelImpl && ((ModelImpl) model).getAdditionalProperties() != null) {
+            validateProperty(location, ((ModelImpl) model).getAdditionalProperties(), definitions, problems);
+        }
+        if (model.getProperties() != null && !(model instanceof RefModel)) {
+            model.getProperties().forEach((name, property) ->
+                    validateProperty(format("%s, property '%s'", location, name), property, definitions, problems));
+        }
+    }
+
+    private static void validateProperty(String location, Property property, Set<String> definitions, List<String> problems)
+    {
+        if (property instanceof RefProperty) {
+            RefProperty ref = (RefProperty) property;
+            validateRef(location, ref.getRefFormat(), ref.getSimpleRef(), definitions, problems);
+        }
+        else if (property instanceof ArrayProperty) {
+            validateProperty(location, ((ArrayProperty) property).getItems(), definitions, problems);
+        }
+        else if (property instanceof MapProperty) {
+            validateProperty(location, ((MapProperty) property).getAdditionalProperties(), definitions, problems);
+        }
+        else if (property instanceof ObjectProperty && ((ObjectProperty) property).getProperties() != null) {
+            ((ObjectProperty) property).getProperties().forEach((name, nested) ->
+                    validateProperty(format("%s, property '%s'", location, name), nested, definitions, problems));
+        }
+    }
+
+    private static void validateRef(String location, RefFormat format, String name, Set<String> definitions, List<String> problems)
+    {
+        // the external refs are resolved into definitions when the spec is read
+        if (format == RefFormat.INTERNAL && !definitions.contains(name)) {
+            problems.add(format("%s references missing definition '%s'", location, name));
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package org.rakam.client.spec;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import io.swagger.models.ArrayModel;
+import io.swagger.models.ComposedModel;
+import io.swagger.models.Model;
+import io.swagger.models.ModelImpl;
+import io.swagger.models.Operation;
+import io.swagger.models.Path;
+import io.swagger.models.Response;
+import io.swagger.models.Swagger;
+import io.swagger.models.parameters.AbstractSerializableParameter;
+import io.swagger.models.parameters.BodyParameter;
+import io.swagger.models.parameters.Parameter;
+import io.swagger.models.properties.ArrayProperty;
+import io.swagger.models.properties.MapProperty;
+import io.swagger.models.properties.Property;
+import io.swagger.models.properties.StringProperty;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Replaces equal strings and enum lists in the parsed model with a single shared instance.
+ *
+ * The parser creates a new string for every occurrence of a value, so a description, a type or an enum list that is
+ * repeated in thousands of parameters and properties is kept in memory thousands of times for the whole run.
+ * The shared lists are immutable copies, so a change to the list of one operation can't leak into the others. An
+ * instance keeps its pool, so the entries that are parsed later, such as the ones of {@link LazySwaggerLoader}, share
+ * the strings as well.
+ */
+public class SwaggerDeduplicator
+{
+    private final Interner<String> strings = Interners.newStrongInterner();
+    private final Interner<List<String>> lists = Interners.newStrongInterner();
+
+    public static Swagger deduplicate(Swagger swagger)
+    {
+        SwaggerDeduplicator deduplicator = new SwaggerDeduplicator();
+        if (swagger.getPaths() != null) {
+            swagger.getPaths().values().forEach(deduplicator::path);
+        }
+        if (swagger.getDefinitions() != null) {
+            swagger.getDefinitions().values().forEach(deduplicator::model);
+        }
+        if (swagger.getParameters() != null) {
+            swagger.getParameters().values().forEach(deduplicator::parameter);
+        }
+        if (swagger.getResponses() != null) {
+            swagger.getResponses().values().forEach(deduplicator::response);
+        }
+        return swagger;
+    }
+
+    public Path path(Path path)
+    {
+        if (path.getParameters() != null) {
+            path.getParameters().forEach(this::parameter);
+        }
+        for (Operation operation : path.getOperations()) {
+            operation.setSummary(string(operation.getSummary()));
+            operation.setDescription(string(operation.getDescription()));
+            operation.setTags(list(operation.getTags()));
+            operation.setConsumes(list(operation.getConsumes()));
+            operation.setProduces(list(operation.getProduces()));
+            if (operation.getParameters() != null) {
+                operation.getParameters().forEach(this::parameter);
+            }
+            if (operation.getResponses() != null) {
+                operation.getResponses().values().forEach(this::response);
+            }
+        }
+        return path;
+    }
+
+    public Model model(Model model)
+    {
+        if (model == null) {
+            return null;
+        }
+        model.setDescription(string(model.getDescription()));
+        properties(model.getProperties());
+        if (model instanceof ModelImpl) {
+            ModelImpl impl = (ModelImpl) model;
+            impl.setType(string(impl.getType()));
+            impl.setFormat(string(impl.getFormat()));
+            impl.setEnum(list(impl.getEnum()));
+            property(impl.getAdditionalProperties());
+        }
+        else if (model instanceof ArrayModel) {
+            property(((ArrayModel) model).getItems());
+        }
+        else if (model instanceof ComposedModel && ((ComposedModel) model).getAllOf() != null) {
+            ((ComposedModel) model).getAllOf().forEach(this::model);
+        }
+        return model;
+    }
+
+    private void parameter(Parameter parameter)
+    {
+        parameter.setName(string(parameter.getName()));
+        parameter.setIn(string(parameter.getIn()));
+        parameter.setDescription(string(parameter.getDescription()));
+        if (parameter instanceof AbstractSerializableParameter) {
+            AbstractSerializableParameter<?> serializable = (AbstractSerializableParameter<?>) parameter;
+            serializable.setType(string(serializable.getType()));
+            serializable.setFormat(string(serializable.getFormat()));
+            serializable.setCollectionFormat(string(serializable.getCollectionFormat()));
+            serializable.setEnum(list(serializable.getEnum()));
+            property(serializable.getItems());
+        }
+        else if (parameter instanceof BodyParameter) {
+            model(((BodyParameter) parameter).getSchema());
+        }
+    }
+
+    private void response(Response response)
+    {
+        if (response != null) {
+            response.setDescription(string(response.getDescription()));
+            property(response.getSchema());
+        }
+    }
+
+    private void properties(Map<String, Property> properties)
+    {
+        if (properties != null) {
+            properties.values().forEach(this::property);
+        }
+    }
+
+    private void property(Property property)
+    {
+        if (property == null) {
+            return;
+        }
+        property.setDescription(string(property.getDescription()));
+        if (property instanceof StringProperty) {
+            StringProperty string = (StringProperty) property;
+            string.setEnum(list(string.getEnum()));
+        }
+        else if (property instanceof ArrayProperty) {
+            property(((ArrayProperty) property).getItems());
+        }
+        else if (property instanceof MapProperty) {
+            property(((MapProperty) property).getAdditionalProperties());
+        }
+    }
+
+    private String string(String value)
+    {
+        return value == null ? null : strings.intern(value);
+    }
+
+    private List<String> list(List<String> value)
+    {
+        // an immutable list can't hold the null value of an enum
+        if (value == null || value.isEmpty() || value.contains(null)) {
+            return value;
+        }
+        ImmutableList.Builder<String> copy = ImmutableList.builder();
+        value.forEach(element -> copy.add(string(element)));
+        return lists.intern(copy.build());
+    }
+}
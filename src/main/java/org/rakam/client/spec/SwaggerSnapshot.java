@@ -0,0 +1,239 @@
+package org.rakam.client.spec;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
+import com.google.common.io.Resources;
+import io.swagger.models.Swagger;
+import io.swagger.util.DeserializationModule;
+import org.rakam.client.builder.document.SlateDocumentGenerator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Stores the parsed and resolved spec in Jackson Smile format so that later runs can skip parsing.
+ *
+ * The snapshot starts with a header that contains the format version and the size, modification time and hash of
+ * the spec file and of each document it references. The snapshot is used if the size and modification time of every
+ * document are unchanged, or if their content hashes are unchanged, otherwise the spec is parsed again and the
+ * snapshot is replaced. Remote documents have no modification time, so they are always checked by the hash of the
+ * downloaded content.
+ */
+public final class SwaggerSnapshot
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(SwaggerSnapshot.class);
+    private static final int MAGIC = 0x534c534e;
+    // increase when the layout or the swagger models change
+    private static final int FORMAT_VERSION = 2;
+    private static final ObjectMapper mapper = new ObjectMapper(new SmileFactory())
+            .registerModule(new DeserializationModule(true, true))
+            .setSerializationInclusion(JsonInclude.Include.NON_NULL)
+            .configure(SerializationFeature.FAIL_ON_EMPTY_BEANS, false)
+            .configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, false)
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private SwaggerSnapshot()
+    {
+    }
+
+    /**
+     * Loads the spec from the snapshot if it's up to date, otherwise parses the spec and writes the snapshot.
+     * Remote documents are tracked by their content hash when {@link HttpSpecCache} is installed, other specs and
+     * the specs that reference them are always parsed.
+     */
+    public static Swagger read(String inputSpec, String auth, File snapshot)
+            throws IOException
+    {
+        Source source = source(inputSpec);
+        if (source == null) {
+            return SlateDocumentGenerator.readSwagger(inputSpec, auth);
+        }
+
+        if (snapshot.isFile()) {
+            Swagger swagger = load(source, snapshot);
+            if (swagger != null) {
+                return swagger;
+            }
+        }
+
+        Map<String, String> documents = new TreeMap<>();
+        Swagger swagger = SlateDocumentGenerator.readSwagger(inputSpec, auth, documents);
+        Map<String, Source> sources = new LinkedHashMap<>();
+        for (String document : documents.keySet()) {
+            Source documentSource = source(document);
+            if (documentSource == null) {
+                LOGGER.info("Spec {} references {} that can't be tracked, not writing a snapshot.", inputSpec, document);
+                return swagger;
+            }
+            sources.put(document, documentSource);
+        }
+        write(source, sources, snapshot, swagger);
+        return swagger;
+    }
+
+    private static Swagger load(Source source, File snapshot)
+    {
+        try (FileChannel channel = FileChannel.open(snapshot.toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+                LOGGER.info("Snapshot {} has a different format version, parsing the spec again.", snapshot);
+                return null;
+            }
+
+            if (!isUnchanged(source, buffer)) {
+                LOGGER.info("Snapshot {} is stale, parsing the spec again.", snapshot);
+                return null;
+            }
+            int documents = buffer.getInt();
+            for (int i = 0; i < documents; i++) {
+                String document = new String(readBytes(buffer), StandardCharsets.UTF_8);
+                Source documentSource = source(document);
+                if (documentSource == null || !isUnchanged(documentSource, buffer)) {
+                    LOGGER.info("Document {} referenced from snapshot {} has changed, parsing the spec again.", document, snapshot);
+                    return null;
+                }
+            }
+
+            return SwaggerDeduplicator.deduplicate(mapper.readValue(new ByteBufferBackedInputStream(buffer.slice()), Swagger.class));
+        }
+        catch (IOException | RuntimeException e) {
+            LOGGER.warn(String.format("Snapshot %s could not be read, parsing the spec again.", snapshot), e);
+            return null;
+        }
+    }
+
+    private static boolean isUnchanged(Source source, ByteBuffer buffer)
+            throws IOException
+    {
+        long length = buffer.getLong();
+        long lastModified = buffer.getLong();
+        byte[] hash = readBytes(buffer);
+        // remote documents have no modification time, an edit that keeps their size is only caught by the hash
+        if (source.lastModified != 0 && length == source.length && lastModified == source.lastModified) {
+            return true;
+        }
+        return new String(hash, StandardCharsets.UTF_8).equals(source.hash());
+    }
+
+    private static byte[] readBytes(ByteBuffer buffer)
+    {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    private static void write(Source source, Map<String, Source> documents, File snapshot, Swagger swagger)
+            throws IOException
+    {
+        ByteArrayOutputStream header = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(header);
+        output.writeInt(MAGIC);
+        output.writeInt(FORMAT_VERSION);
+        writeSource(output, source);
+        output.writeInt(documents.size());
+        for (Map.Entry<String, Source> document : documents.entrySet()) {
+            writeBytes(output, document.getKey().getBytes(StandardCharsets.UTF_8));
+            writeSource(output, document.getValue());
+        }
+
+        File parent = snapshot.getAbsoluteFile().getParentFile();
+        parent.mkdirs();
+        // write to a temporary file first so that concurrent runs never read a partial snapshot
+        File temporary = File.createTempFile(snapshot.getName(), ".tmp", parent);
+        try (OutputStream stream = new FileOutputStream(temporary)) {
+            stream.write(header.toByteArray());
+            mapper.writeValue(stream, swagger);
+        }
+        java.nio.file.Files.move(temporary.toPath(), snapshot.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void writeSource(DataOutputStream output, Source source)
+            throws IOException
+    {
+        output.writeLong(source.length);
+        output.writeLong(source.lastModified);
+        writeBytes(output, source.hash().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void writeBytes(DataOutputStream output, byte[] bytes)
+            throws IOException
+    {
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    /**
+     * Returns the source of a local file, or of a remote document if {@link HttpSpecCache} is installed, otherwise
+     * null since the document can't be checked without downloading it.
+     */
+    private static Source source(String location)
+            throws IOException
+    {
+        File file = new File(location);
+        if (file.isFile()) {
+            return new Source(file.length(), file.lastModified(), () -> Files.hash(file, Hashing.sha256()).toString());
+        }
+        if (isRemote(location) && HttpSpecCache.isInstalled()) {
+            // the body is served from the cache when the server responds with 304
+            byte[] content = Resources.toByteArray(new URL(location));
+            String hash = Hashing.sha256().hashBytes(content).toString();
+            return new Source(content.length, 0, () -> hash);
+        }
+        return null;
+    }
+
+    private static boolean isRemote(String location)
+    {
+        String lowerCase = location.toLowerCase(Locale.ENGLISH);
+        return lowerCase.startsWith("http:") || lowerCase.startsWith("https:");
+    }
+
+    private interface HashSupplier
+    {
+        String get()
+                throws IOException;
+    }
+
+    private static class Source
+    {
+        private final long length;
+        private final long lastModified;
+        private final HashSupplier hash;
+
+        private Source(long length, long lastModified, HashSupplier hash)
+        {
+            this.length = length;
+            this.lastModified = lastModified;
+            this.hash = hash;
+        }
+
+        public String hash()
+                throws IOException
+        {
+            return hash.get();
+        }
+    }
+}
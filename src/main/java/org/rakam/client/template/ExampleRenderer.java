@@ -0,0 +1,11 @@
+package org.rakam.client.template;
+
+import java.util.Map;
+
+/**
+ * Renders the example usage of an operation from its codegen bundle.
+ */
+public interface ExampleRenderer
+{
+    String render(Map<String, Object> bundle);
+}
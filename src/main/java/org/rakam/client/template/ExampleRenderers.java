@@ -0,0 +1,37 @@
+package org.rakam.client.template;
+
+import com.google.common.hash.Hashing;
+import com.samskivert.mustache.Escapers;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Looks up the renderers that are compiled from the bundled templates at build time, and the helpers the compiled
+ * renderers use to format values the same way JMustache does.
+ */
+public final class ExampleRenderers
+{
+    private ExampleRenderers()
+    {
+    }
+
+    /**
+     * Returns the compiled renderer of the template, or null if the template is not one of the compiled ones. The
+     * template is matched by its content, so a template that is overridden at runtime is never rendered with the
+     * code compiled from the bundled one.
+     */
+    public static ExampleRenderer compiled(String template)
+    {
+        return CompiledExampleRenderers.get(Hashing.sha256().hashString(template, StandardCharsets.UTF_8).toString());
+    }
+
+    public static String escape(Object value)
+    {
+        return value == null ? "" : Escapers.HTML.escape(String.valueOf(value));
+    }
+
+    public static String format(Object value)
+    {
+        return value == null ? "" : String.valueOf(value);
+    }
+}
@@ -0,0 +1,109 @@
+package org.rakam.client.utils;
+
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.Validate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.Collectors;
+
+/**
+ * Collects the large enums of a document so that each of them is rendered once, as its own section.
+ *
+ * Enums up to the threshold are written inline as {@code enum (a, b, c)}. Larger ones are written as a link to the
+ * section of their values, which is named after the hash of the sorted values, so enums with the same values share a
+ * section and the names are the same in every shard of a document.
+ */
+public class EnumTables
+{
+    public static final int DEFAULT_THRESHOLD = 20;
+    public static final String TITLE_PREFIX = "Enum ";
+    // writes all the enums inline, so it never collects any
+    public static final EnumTables INLINE = new EnumTables(0);
+
+    private final int threshold;
+    private final Map<String, List<String>> tables = new ConcurrentHashMap<>();
+    // the enum lists of a deduplicated spec are shared and immutable, so the type of each is rendered once
+    private final Cache<List<?>, String> types = CacheBuilder.newBuilder().weakKeys().build();
+
+    /**
+     * @param threshold the number of values up to which the enums are written inline, 0 to write all of them inline
+     */
+    public EnumTables(int threshold)
+    {
+        Validate.isTrue(threshold >= 0, "enum table threshold must not be negative");
+        this.threshold = threshold;
+    }
+
+    public int getThreshold()
+    {
+        return threshold;
+    }
+
+    /**
+     * Returns the type of an enum with the given values for a table cell.
+     */
+    public String type(List<?> values)
+    {
+        if (!(values instanceof ImmutableList)) {
+            return render(values);
+        }
+        try {
+            return types.get(values, () -> render(values));
+        }
+        catch (ExecutionException e) {
+            throw Throwables.propagate(e.getCause());
+        }
+    }
+
+    private String render(List<?> values)
+    {
+        if (threshold == 0 || values.size() <= threshold) {
+            return "enum" + " (" + StringUtils.join(values, ", ") + ")";
+        }
+        // enums with the same values in a different order share the section, so it lists them sorted
+        List<String> sorted = values.stream().map(Objects::toString).sorted().collect(Collectors.toList());
+        String title = TITLE_PREFIX + name(sorted);
+        tables.putIfAbsent(title, ImmutableList.copyOf(sorted));
+        return format(sorted.size(), title);
+    }
+
+    public void addAll(Map<String, List<String>> tables)
+    {
+        tables.forEach(this.tables::putIfAbsent);
+    }
+
+    /**
+     * Returns the values of the enums that are rendered as sections by their section title, in the order of the
+     * titles.
+     */
+    public Map<String, List<String>> getTables()
+    {
+        return ImmutableMap.copyOf(new TreeMap<>(tables));
+    }
+
+    private static String format(int size, String title)
+    {
+        return "[enum (" + size + " values)](#" + title.toLowerCase(Locale.ENGLISH).replace(' ', '-') + ")";
+    }
+
+    private static String name(List<String> sortedValues)
+    {
+        Hasher hasher = Hashing.sha256().newHasher();
+        sortedValues.forEach(value -> hasher.putString(value, StandardCharsets.UTF_8).putByte((byte) 0));
+        return hasher.hash().toString().substring(0, 12);
+    }
+}
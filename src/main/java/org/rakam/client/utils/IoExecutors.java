@@ -0,0 +1,36 @@
+package org.rakam.client.utils;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Executors for the tasks that mostly wait on I/O, such as fetching referenced documents and reading and writing
+ * spec files.
+ *
+ * This is the Java 8 variant, which uses platform threads. The multi-release jar built on Java 21 replaces this
+ * class with one that runs each task on a virtual thread, see {@code src/main/java21}.
+ */
+public final class IoExecutors
+{
+    private IoExecutors()
+    {
+    }
+
+    /**
+     * Returns a shared executor for short blocking tasks.
+     */
+    public static Executor shared()
+    {
+        return ForkJoinPool.commonPool();
+    }
+
+    /**
+     * Returns a new executor that runs at most the given number of tasks concurrently.
+     */
+    public static ExecutorService newExecutor(int threads)
+    {
+        return Executors.newFixedThreadPool(threads);
+    }
+}
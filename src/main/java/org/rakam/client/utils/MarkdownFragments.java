@@ -0,0 +1,48 @@
+package org.rakam.client.utils;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.Maps;
+
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Pools the small fragments that are rendered over and over in the parameter and property tables, such as the links
+ * to the definitions and the types with their format.
+ *
+ * A spec uses a few hundred of them at most, but they were concatenated again for every row. The pools are bounded
+ * and shared between the renders, so a long running server doesn't keep the fragments of every spec it has seen.
+ */
+public final class MarkdownFragments
+{
+    private static final int MAXIMUM_SIZE = 10_000;
+
+    private static final LoadingCache<String, String> links = CacheBuilder.newBuilder()
+            .maximumSize(MAXIMUM_SIZE)
+            .build(CacheLoader.from(name -> "[" + name + "](#" + name.toLowerCase(Locale.ENGLISH) + ")"));
+    private static final LoadingCache<Map.Entry<String, String>, String> formattedTypes = CacheBuilder.newBuilder()
+            .maximumSize(MAXIMUM_SIZE)
+            .build(CacheLoader.from(type -> type.getKey() + " (" + type.getValue() + ")"));
+
+    private MarkdownFragments()
+    {
+    }
+
+    /**
+     * Returns the link to the section of the given definition.
+     */
+    public static String link(String name)
+    {
+        return links.getUnchecked(name);
+    }
+
+    /**
+     * Returns the type followed by its format in parentheses.
+     */
+    public static String typeWithFormat(String type, String format)
+    {
+        return formattedTypes.getUnchecked(Maps.immutableEntry(type, format));
+    }
+}
@@ -0,0 +1,172 @@
+package org.rakam.client.utils;
+
+import com.google.common.base.Throwables;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Gzip output stream that compresses blocks of the input in parallel, like pigz.
+ *
+ * The input is split into blocks that are deflated independently on the common fork-join pool. Each block is
+ * primed with the last 32 KB of the previous one as dictionary, so the compression ratio is close to a single
+ * stream, and ends with a sync flush so that the compressed blocks can be concatenated into one deflate stream.
+ * The blocks are written in order as they complete, and at most a few blocks per core are kept in memory.
+ */
+public class ParallelGzipOutputStream
+        extends OutputStream
+{
+    private static final int BLOCK_SIZE = 128 * 1024;
+    private static final int DICTIONARY_SIZE = 32 * 1024;
+    private static final byte[] HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+
+    private final OutputStream out;
+    private final int level;
+    private final int maxPending;
+    private final Deque<CompletableFuture<byte[]>> pending = new ArrayDeque<>();
+    private final CRC32 crc = new CRC32();
+
+    private byte[] block = new byte[BLOCK_SIZE];
+    private int blockLength;
+    private byte[] dictionary;
+    private long length;
+    private boolean closed;
+
+    public ParallelGzipOutputStream(OutputStream out)
+            throws IOException
+    {
+        this(out, Deflater.DEFAULT_COMPRESSION);
+    }
+
+    public ParallelGzipOutputStream(OutputStream out, int level)
+            throws IOException
+    {
+        this.out = out;
+        this.level = level;
+        this.maxPending = ForkJoinPool.getCommonPoolParallelism() * 2;
+        out.write(HEADER);
+    }
+
+    @Override
+    public void write(int b)
+            throws IOException
+    {
+        write(new byte[] {(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length)
+            throws IOException
+    {
+        crc.update(bytes, offset, length);
+        this.length += length;
+        while (length > 0) {
+            int count = Math.min(length, BLOCK_SIZE - blockLength);
+            System.arraycopy(bytes, offset, block, blockLength, count);
+            blockLength += count;
+            offset += count;
+            length -= count;
+            if (blockLength == BLOCK_SIZE) {
+                submit(false);
+            }
+        }
+    }
+
+    @Override
+    public void close()
+            throws IOException
+    {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            submit(true);
+            while (!pending.isEmpty()) {
+                writeOldest();
+            }
+            writeInt((int) crc.getValue());
+            writeInt((int) length);
+        }
+        finally {
+            out.close();
+        }
+    }
+
+    private void submit(boolean last)
+            throws IOException
+    {
+        byte[] input = block;
+        int inputLength = blockLength;
+        byte[] inputDictionary = dictionary;
+        pending.add(CompletableFuture.supplyAsync(() -> deflate(input, inputLength, inputDictionary, last)));
+
+        if (!last) {
+            dictionary = Arrays.copyOfRange(input, inputLength - DICTIONARY_SIZE, inputLength);
+            block = new byte[BLOCK_SIZE];
+            blockLength = 0;
+        }
+        while (pending.size() > maxPending) {
+            writeOldest();
+        }
+    }
+
+    private void writeOldest()
+            throws IOException
+    {
+        try {
+            out.write(pending.removeFirst().get());
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw Throwables.propagate(e);
+        }
+        catch (ExecutionException e) {
+            throw Throwables.propagate(e.getCause());
+        }
+    }
+
+    private byte[] deflate(byte[] input, int inputLength, byte[] dictionary, boolean last)
+    {
+        Deflater deflater = new Deflater(level, true);
+        try {
+            if (dictionary != null) {
+                deflater.setDictionary(dictionary);
+            }
+            deflater.setInput(input, 0, inputLength);
+            if (last) {
+                deflater.finish();
+            }
+            ByteArrayOutputStream output = new ByteArrayOutputStream(inputLength / 2 + 64);
+            byte[] buffer = new byte[16 * 1024];
+            while (true) {
+                int count = deflater.deflate(buffer, 0, buffer.length, last ? Deflater.NO_FLUSH : Deflater.SYNC_FLUSH);
+                output.write(buffer, 0, count);
+                if (last ? deflater.finished() : count < buffer.length) {
+                    return output.toByteArray();
+                }
+            }
+        }
+        finally {
+            deflater.end();
+        }
+    }
+
+    private void writeInt(int value)
+            throws IOException
+    {
+        out.write(value & 0xff);
+        out.write((value >> 8) & 0xff);
+        out.write((value >> 16) & 0xff);
+        out.write((value >> 24) & 0xff);
+    }
+}
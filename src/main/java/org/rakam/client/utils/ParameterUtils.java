@@ -28,13 +28,16 @@ import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.Validate;
 
 import java.util.List;
-import java.util.Locale;
 import java.util.Set;
 
 
 public final class ParameterUtils {
 
     public static String getType(Parameter parameter, Set<String> definitions){
+        return getType(parameter, definitions, EnumTables.INLINE);
+    }
+
+    public static String getType(Parameter parameter, Set<String> definitions, EnumTables enumTables){
         Validate.notNull(parameter, "property must not be null!");
         String type = "NOT FOUND";
         if(parameter instanceof BodyParameter){
@@ -51,13 +54,13 @@ public final class ParameterUtils {
             AbstractSerializableParameter serializableParameter = (AbstractSerializableParameter)parameter;
             List enums = serializableParameter.getEnum();
             if(enums != null && !enums.isEmpty()){
-                type = "enum" + " (" + StringUtils.join(enums, ", ") + ")";
+                type = enumTables.type(enums);
             }else{
                 type = getTypeWithFormat(serializableParameter.getType(), serializableParameter.getFormat());
             }
             if(type.equals("array")){
                 String collectionFormat = serializableParameter.getCollectionFormat();
-                type = collectionFormat + " " + PropertyUtils.getType(serializableParameter.getItems()) + " " + type;
+                type = collectionFormat + " " + PropertyUtils.getType(serializableParameter.getItems(), null, enumTables) + " " + type;
             }
         }
         else if(parameter instanceof RefParameter){
@@ -65,7 +68,7 @@ public final class ParameterUtils {
             if(definitions != null) {
                 definitions.add(refParameter.getSimpleRef());
             }
-            return "["+refParameter.getSimpleRef()+"](#"+refParameter.getSimpleRef().toLowerCase(Locale.ENGLISH)+")";
+            return MarkdownFragments.link(refParameter.getSimpleRef());
         }
         return StringUtils.defaultString(type);
     }
@@ -73,7 +76,7 @@ public final class ParameterUtils {
     private static String getTypeWithFormat(String typeWithoutFormat, String format) {
         String type;
         if(StringUtils.isNotBlank(format)){
-            type = StringUtils.defaultString(typeWithoutFormat) + " (" + format + ")";
+            type = MarkdownFragments.typeWithFormat(StringUtils.defaultString(typeWithoutFormat), format);
         }else{
             type = StringUtils.defaultString(typeWithoutFormat);
         }
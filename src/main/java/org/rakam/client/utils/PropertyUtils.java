@@ -32,7 +32,6 @@ import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.Validate;
 
 import java.util.List;
-import java.util.Locale;
 import java.util.Objects;
 import java.util.Set;
 
@@ -43,29 +42,33 @@ public final class PropertyUtils {
     }
 
     public static String getType(Property property, Set<String> requiredRefinitions){
+        return getType(property, requiredRefinitions, EnumTables.INLINE);
+    }
+
+    public static String getType(Property property, Set<String> requiredRefinitions, EnumTables enumTables){
         Validate.notNull(property, "property must not be null!");
         String type;
         if(property instanceof RefProperty){
             RefProperty refProperty = (RefProperty)property;
             if(requiredRefinitions != null)
                 requiredRefinitions.add(refProperty.getSimpleRef());
-            return "["+refProperty.getSimpleRef()+"](#"+refProperty.getSimpleRef().toLowerCase(Locale.ENGLISH)+")";
+            return MarkdownFragments.link(refProperty.getSimpleRef());
         }else if(property instanceof ArrayProperty){
             ArrayProperty arrayProperty = (ArrayProperty)property;
             Property items = arrayProperty.getItems();
-            type = getType(items, requiredRefinitions) + " " + arrayProperty.getType();
+            type = getType(items, requiredRefinitions, enumTables) + " " + arrayProperty.getType();
         }else if(property instanceof StringProperty){
             StringProperty stringProperty = (StringProperty)property;
             List<String> enums = stringProperty.getEnum();
             if(enums !=null && !enums.isEmpty()){
-                type = "enum" + " (" + StringUtils.join(enums, ", ") + ")";
+                type = enumTables.type(enums);
             }else{
                 type = property.getType();
             }
         }
         else{
             if(StringUtils.isNotBlank(property.getFormat())){
-                type = StringUtils.defaultString(property.getType()) + " (" + property.getFormat() + ")";
+                type = MarkdownFragments.typeWithFormat(StringUtils.defaultString(property.getType()), property.getFormat());
             }else{
                 type = property.getType();
             }
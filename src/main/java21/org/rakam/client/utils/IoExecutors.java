@@ -0,0 +1,38 @@
+package org.rakam.client.utils;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Executors for the tasks that mostly wait on I/O, such as fetching referenced documents and reading and writing
+ * spec files.
+ *
+ * This is the Java 21 variant of the multi-release jar. Each task runs on its own virtual thread, so thousands of
+ * blocking reads can wait concurrently without a large pool of platform threads. The callers bound the CPU-bound
+ * work and the number of specs held in memory separately.
+ */
+public final class IoExecutors
+{
+    private static final ExecutorService VIRTUAL = Executors.newVirtualThreadPerTaskExecutor();
+
+    private IoExecutors()
+    {
+    }
+
+    /**
+     * Returns a shared executor for short blocking tasks.
+     */
+    public static Executor shared()
+    {
+        return VIRTUAL;
+    }
+
+    /**
+     * Returns a new executor that runs every task on a new virtual thread, the number of threads is not used.
+     */
+    public static ExecutorService newExecutor(int threads)
+    {
+        return Executors.newVirtualThreadPerTaskExecutor();
+    }
+}
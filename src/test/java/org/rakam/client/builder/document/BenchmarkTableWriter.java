@@ -0,0 +1,91 @@
+package org.rakam.client.builder.document;
+
+import io.github.robwin.markup.builder.markdown.MarkdownBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares writing the parameter tables cell by cell with {@link SlateMarkdownBuilder} to joining the rows into
+ * strings for {@link MarkdownBuilder#tableWithHeaderRow(List)}, which is how the tables were written before.
+ *
+ * Run with {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.rakam.client.builder.document.BenchmarkTableWriter}.
+ */
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@BenchmarkMode(Mode.AverageTime)
+@Fork(value = 1, jvmArgsAppend = "-Xmx1g")
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+public class BenchmarkTableWriter
+{
+    private static final String[] HEADER = {"Parameter", "Required", "Type", "Description"};
+
+    @Param({"10", "100", "1000"})
+    private int rows;
+
+    private String[][] cells;
+
+    @Setup
+    public void setup()
+    {
+        cells = new String[rows][];
+        for (int i = 0; i < rows; i++) {
+            cells[i] = new String[] {
+                    "parameter_" + i,
+                    String.valueOf(i % 2 == 0),
+                    i % 3 == 0 ? "array[string]" : "[Reference](#reference)",
+                    "The description of parameter " + i + ", longer than the other cells of the row"};
+        }
+    }
+
+    @Benchmark
+    public String cellByCell()
+    {
+        SlateMarkdownBuilder builder = new SlateMarkdownBuilder();
+        builder.tableHeader(HEADER);
+        for (String[] row : cells) {
+            for (String cell : row) {
+                builder.cell(cell);
+            }
+            builder.endRow();
+        }
+        return builder.endTable().toString();
+    }
+
+    @Benchmark
+    public String joinedRows()
+    {
+        List<String> table = new ArrayList<>(rows + 1);
+        table.add(String.join("|", HEADER));
+        for (String[] row : cells) {
+            table.add(String.join("|", row));
+        }
+        return new SlateMarkdownBuilder().tableWithHeaderRow(table).toString();
+    }
+
+    public static void main(String[] args)
+            throws RunnerException
+    {
+        Options options = new OptionsBuilder()
+                .include(".*" + BenchmarkTableWriter.class.getSimpleName() + ".*")
+                .build();
+        new Runner(options).run();
+    }
+}
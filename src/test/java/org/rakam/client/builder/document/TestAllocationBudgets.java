@@ -0,0 +1,178 @@
+package org.rakam.client.builder.document;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.Resources;
+import io.swagger.models.HttpMethod;
+import io.swagger.models.Model;
+import io.swagger.models.Operation;
+import io.swagger.models.Path;
+import io.swagger.models.Response;
+import io.swagger.models.Swagger;
+import io.swagger.models.properties.Property;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.rakam.client.utils.EnumTables;
+import org.rakam.client.utils.PropertyUtils;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import static java.lang.String.format;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the bytes allocated while rendering the example spec against recorded budgets, so that a change that
+ * makes the hot paths allocate much more fails the build. The budgets are about 1.5 times the allocations measured
+ * on Java 17 when they were recorded, update them when a change is expected to allocate more.
+ */
+public class TestAllocationBudgets
+{
+    private static final int WARMUP_RUNS = 20;
+    private static final int MEASURED_RUNS = 21;
+
+    // measured: 310024, 34720, 11928 and 59528 bytes
+    private static final long PROCESS_OPERATION_BUDGET = 465_000;
+    private static final long GET_VALUE_BUDGET = 53_000;
+    private static final long GET_TYPE_BUDGET = 18_000;
+    private static final long DEFINITIONS_BUDGET = 90_000;
+    // the strings take two bytes per character before Java 9
+    private static final int STRING_FACTOR = System.getProperty("java.specification.version").startsWith("1.") ? 2 : 1;
+
+    private static final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private static Swagger swagger;
+    private static List<Property> properties;
+
+    @BeforeClass
+    public static void setUp()
+            throws Exception
+    {
+        assertTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        swagger = SlateDocumentGenerator.readSwagger(new File(Resources.getResource("rakam-example-spec.json").toURI()).getPath(), null);
+        properties = new ArrayList<>();
+        for (Path path : swagger.getPaths().values()) {
+            for (Operation operation : path.getOperations()) {
+                Response response = operation.getResponses().get("200");
+                if (response != null && response.getSchema() != null) {
+                    properties.add(response.getSchema());
+                }
+            }
+        }
+        for (Model model : swagger.getDefinitions().values()) {
+            if (model.getProperties() != null) {
+                properties.addAll(model.getProperties().values());
+            }
+        }
+    }
+
+    @Test
+    public void testProcessOperation()
+            throws Exception
+    {
+        assertWithinBudget("processOperation", PROCESS_OPERATION_BUDGET, () -> {
+            SlateDocument document = document();
+            return () -> {
+                for (Map.Entry<String, Path> path : swagger.getPaths().entrySet()) {
+                    for (Map.Entry<HttpMethod, Operation> operation : path.getValue().getOperationMap().entrySet()) {
+                        document.processOperation(path.getKey(), operation.getKey().name(), operation.getValue());
+                    }
+                }
+            };
+        });
+    }
+
+    @Test
+    public void testGetValue()
+            throws Exception
+    {
+        assertWithinBudget("getValue", GET_VALUE_BUDGET, () -> {
+            SlateDocument document = document();
+            return () -> properties.forEach(document::getValue);
+        });
+    }
+
+    @Test
+    public void testGetType()
+            throws Exception
+    {
+        assertWithinBudget("PropertyUtils.getType", GET_TYPE_BUDGET, () -> {
+            HashSet<String> definitions = new HashSet<>();
+            EnumTables enumTables = new EnumTables(EnumTables.DEFAULT_THRESHOLD);
+            return () -> properties.forEach(property -> PropertyUtils.getType(property, definitions, enumTables));
+        });
+    }
+
+    @Test
+    public void testDefinitions()
+            throws Exception
+    {
+        assertWithinBudget("DefinitionsDocument.process", DEFINITIONS_BUDGET, () -> {
+            DefinitionsDocument document = new DefinitionsDocument(swagger, new SlateMarkdownBuilder(),
+                    new EnumTables(EnumTables.DEFAULT_THRESHOLD), Long.MAX_VALUE);
+            return () -> document.process(swagger.getDefinitions().keySet());
+        });
+    }
+
+    private static SlateDocument document()
+    {
+        return new SlateDocument(swagger, ImmutableList.of(), ImmutableMap.of(), ExampleLimits.DEFAULT,
+                new EnumTables(EnumTables.DEFAULT_THRESHOLD), RenderBudget.UNLIMITED, Long.MAX_VALUE);
+    }
+
+    /**
+     * Runs the task returned by the setup repeatedly and checks the median of the bytes that all threads allocated
+     * while it ran, the setup itself is not measured.
+     */
+    private static void assertWithinBudget(String name, long budget, Callable<Task> setup)
+            throws Exception
+    {
+        long[] samples = new long[MEASURED_RUNS];
+        for (int i = 0; i < WARMUP_RUNS + MEASURED_RUNS; i++) {
+            Task task = setup.call();
+            Map<Long, Long> before = allocatedBytes();
+            task.run();
+            Map<Long, Long> after = allocatedBytes();
+            if (i >= WARMUP_RUNS) {
+                long allocated = 0;
+                for (Map.Entry<Long, Long> thread : after.entrySet()) {
+                    allocated += thread.getValue() - before.getOrDefault(thread.getKey(), 0L);
+                }
+                samples[i - WARMUP_RUNS] = allocated;
+            }
+        }
+        Arrays.sort(samples);
+        long median = samples[MEASURED_RUNS / 2];
+        budget *= STRING_FACTOR;
+        assertTrue(format("%s allocated %d bytes, more than its budget of %d bytes", name, median, budget), median <= budget);
+    }
+
+    // the parallel streams allocate on the common pool, so the allocations of all threads are counted
+    private static Map<Long, Long> allocatedBytes()
+    {
+        long[] ids = threads.getAllThreadIds();
+        long[] allocated = threads.getThreadAllocatedBytes(ids);
+        Map<Long, Long> bytes = new HashMap<>(ids.length * 2);
+        for (int i = 0; i < ids.length; i++) {
+            if (allocated[i] >= 0) {
+                bytes.put(ids[i], allocated[i]);
+            }
+        }
+        return bytes;
+    }
+
+    private interface Task
+    {
+        void run()
+                throws Exception;
+    }
+}
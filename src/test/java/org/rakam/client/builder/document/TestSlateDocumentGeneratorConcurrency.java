@@ -0,0 +1,102 @@
+package org.rakam.client.builder.document;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.Resources;
+import io.swagger.codegen.config.CodegenConfigurator;
+import io.swagger.models.Swagger;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+public class TestSlateDocumentGeneratorConcurrency
+{
+    private static final int THREADS = 8;
+    private static final int RENDERS_PER_THREAD = 4;
+
+    @Test
+    public void testConcurrentRendersMatchSequentialOutput()
+            throws Exception
+    {
+        SlateDocumentGenerator generator = new SlateDocumentGenerator(configurators("java", "python", "php"));
+
+        String spec = new File(Resources.getResource("rakam-example-spec.json").toURI()).getPath();
+        File variant = File.createTempFile("variant-spec", ".json");
+        variant.deleteOnExit();
+        Files.write(variant.toPath(), Resources.toString(Resources.getResource("rakam-example-spec.json"), StandardCharsets.UTF_8)
+                .replace("https://app.getrakam.com", "https://variant.example.com")
+                .replace("Rakam API Documentation", "Variant API Documentation")
+                .getBytes(StandardCharsets.UTF_8));
+
+        List<String> specs = ImmutableList.of(spec, variant.getPath());
+        List<String> expected = new ArrayList<>();
+        for (String location : specs) {
+            expected.add(render(generator, location));
+        }
+        assertNotEquals(expected.get(0), expected.get(1));
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            CyclicBarrier start = new CyclicBarrier(THREADS);
+            List<Future<List<String>>> futures = new ArrayList<>();
+            for (int thread = 0; thread < THREADS; thread++) {
+                int offset = thread;
+                futures.add(executor.submit((Callable<List<String>>) () -> {
+                    start.await();
+                    List<String> outputs = new ArrayList<>();
+                    for (int i = 0; i < RENDERS_PER_THREAD; i++) {
+                        outputs.add(render(generator, specs.get((offset + i) % specs.size())));
+                    }
+                    return outputs;
+                }));
+            }
+
+            for (int thread = 0; thread < THREADS; thread++) {
+                List<String> outputs = futures.get(thread).get(10, TimeUnit.MINUTES);
+                for (int i = 0; i < RENDERS_PER_THREAD; i++) {
+                    assertEquals(format(thread, i), expected.get((thread + i) % specs.size()), outputs.get(i));
+                }
+            }
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static String render(SlateDocumentGenerator generator, String location)
+            throws Exception
+    {
+        Swagger swagger = SlateDocumentGenerator.readSwagger(location, null);
+        StringBuilder output = new StringBuilder();
+        generator.render(swagger, output);
+        return output.toString();
+    }
+
+    private static String format(int thread, int render)
+    {
+        return String.format("render %d of thread %d", render, thread);
+    }
+
+    static ImmutableList<CodegenConfigurator> configurators(String... languages)
+    {
+        ImmutableList.Builder<CodegenConfigurator> configurators = ImmutableList.builder();
+        for (String language : languages) {
+            CodegenConfigurator configurator = new CodegenConfigurator();
+            configurator.setLang(language);
+            configurators.add(configurator);
+        }
+        return configurators.build();
+    }
+}
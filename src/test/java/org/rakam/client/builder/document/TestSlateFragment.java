@@ -0,0 +1,62 @@
+package org.rakam.client.builder.document;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import io.swagger.models.Swagger;
+import io.swagger.parser.SwaggerParser;
+import org.junit.Test;
+import org.rakam.client.utils.EnumTables;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.rakam.client.builder.document.TestSlateDocumentGeneratorConcurrency.configurators;
+
+public class TestSlateFragment
+{
+    // the enum of the definition is only rendered when the fragments are merged
+    private static final String SPEC = "{\"swagger\":\"2.0\",\"info\":{\"title\":\"Items\",\"version\":\"1.0\"},"
+            + "\"tags\":[{\"name\":\"items\"},{\"name\":\"colors\"}],"
+            + "\"paths\":{\"/items\":{\"get\":{\"tags\":[\"items\"],\"summary\":\"Get item\",\"operationId\":\"getItem\",\"parameters\":[],"
+            + "\"responses\":{\"200\":{\"description\":\"the item\",\"schema\":{\"$ref\":\"#/definitions/Item\"}}}}},"
+            + "\"/colors\":{\"get\":{\"tags\":[\"colors\"],\"summary\":\"Get colors\",\"operationId\":\"getColors\",\"parameters\":[],"
+            + "\"responses\":{\"200\":{\"description\":\"the colors\",\"schema\":{\"type\":\"string\"}}}}}},"
+            + "\"definitions\":{\"Item\":{\"type\":\"object\",\"properties\":{\"color\":{\"type\":\"string\","
+            + "\"enum\":[\"red\",\"green\",\"blue\",\"cyan\",\"magenta\"]}}}}}";
+
+    @Test
+    public void testMergeUsesTheOptionsOfTheFragments()
+            throws IOException
+    {
+        Swagger swagger = new SwaggerParser().parse(SPEC);
+        ExampleLimits limits = new ExampleLimits(8, 50, 2, 1024);
+        SlateDocumentGenerator generator = new SlateDocumentGenerator(configurators("java"), limits, RenderBudget.UNLIMITED, 3);
+        String expected = generator.render(swagger).toString();
+        assertTrue(expected.contains(EnumTables.TITLE_PREFIX));
+
+        File directory = Files.createTempDirectory("fragments").toFile();
+        generator.renderFragment(swagger, ImmutableList.of("items")).write(directory, "first");
+        generator.renderFragment(swagger, ImmutableList.of("colors")).write(directory, "second");
+        SlateFragment first = SlateFragment.read(new File(directory, "first.json"));
+        assertEquals(3, first.getEnumTableThreshold());
+        assertEquals(limits, first.getLimits());
+
+        List<SlateFragment> fragments = ImmutableList.of(first, SlateFragment.read(new File(directory, "second.json")));
+        assertEquals(expected, SlateDocumentGenerator.merge(swagger, ImmutableList.of("java"), fragments).toString());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMergeRejectsFragmentsWithDifferentOptions()
+            throws IOException
+    {
+        Swagger swagger = new SwaggerParser().parse(SPEC);
+        SlateFragment items = new SlateFragment(ImmutableMap.of("items", ""), ImmutableSet.of(), ImmutableMap.of(), 3, ExampleLimits.DEFAULT);
+        SlateFragment colors = new SlateFragment(ImmutableMap.of("colors", ""), ImmutableSet.of(), ImmutableMap.of());
+        SlateDocumentGenerator.merge(swagger, ImmutableList.of("java"), ImmutableList.of(items, colors));
+    }
+}
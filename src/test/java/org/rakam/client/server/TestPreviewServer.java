@@ -0,0 +1,221 @@
+package org.rakam.client.server;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Resources;
+import com.sun.net.httpserver.HttpServer;
+import io.swagger.codegen.config.CodegenConfigurator;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.rakam.client.builder.document.ExampleLimits;
+import org.rakam.client.builder.document.RenderBudget;
+import org.rakam.client.utils.EnumTables;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TestPreviewServer
+{
+    private static final String SPEC = "{\"swagger\":\"2.0\",\"info\":{\"title\":\"Items\",\"version\":\"1.0\"},\"host\":\"localhost\",\"basePath\":\"/\",\"tags\":[{\"name\":\"items\"}],"
+            + "\"paths\":{\"/items\":{\"get\":{\"tags\":[\"items\"],\"operationId\":\"getItem\",\"parameters\":[],"
+            + "\"responses\":{\"200\":{\"description\":\"the item\",\"schema\":{\"$ref\":\"%s#/Item\"}}}}}}}";
+    private static final String DEFINITIONS = "{\"Item\":{\"type\":\"object\",\"properties\":{\"%s\":{\"type\":\"string\"}}}}";
+
+    private Path root;
+    private Path outside;
+    private PreviewServer server;
+
+    @Before
+    public void setUp()
+            throws IOException
+    {
+        root = Files.createTempDirectory("preview-root");
+        outside = Files.createTempDirectory("preview-outside");
+        CodegenConfigurator configurator = new CodegenConfigurator();
+        configurator.setLang("java");
+        server = new PreviewServer(ImmutableList.of(configurator), ExampleLimits.DEFAULT, RenderBudget.UNLIMITED, EnumTables.DEFAULT_THRESHOLD,
+                true, root, false, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 16 * 1024 * 1024);
+        server.start();
+    }
+
+    @After
+    public void tearDown()
+    {
+        server.stop();
+    }
+
+    @Test
+    public void testPostedSpec()
+            throws IOException
+    {
+        byte[] spec = Resources.toByteArray(Resources.getResource("rakam-example-spec.json"));
+        Response first = request("POST", "/render", spec);
+        assertEquals(first.body, 200, first.status);
+        assertTrue(first.body.contains("List installed modules"));
+
+        Response second = request("POST", "/render", spec);
+        assertEquals(first.body, second.body);
+        String stats = request("GET", "/stats", null).body;
+        assertTrue(stats, stats.contains("\"hits\" : 1"));
+
+        Response html = request("POST", "/render?format=html", spec);
+        assertEquals(200, html.status);
+        assertTrue(html.body.startsWith("<!DOCTYPE html>"));
+
+        assertEquals(400, request("POST", "/render", "not a spec".getBytes(StandardCharsets.UTF_8)).status);
+        assertEquals(400, request("POST", "/render?languages=cobol", spec).status);
+    }
+
+    @Test
+    public void testPostedSpecResolvesRefsInSpecRoot()
+            throws IOException
+    {
+        write(root.resolve("definitions.json"), String.format(DEFINITIONS, "posted_property"));
+        Response response = request("POST", "/render", String.format(SPEC, "./definitions.json").getBytes(StandardCharsets.UTF_8));
+        assertEquals(response.body, 200, response.status);
+        assertTrue(response.body.contains("posted_property"));
+    }
+
+    @Test
+    public void testReferencedDocumentChangesInvalidateCache()
+            throws IOException
+    {
+        write(root.resolve("spec.json"), String.format(SPEC, "./definitions.json"));
+        write(root.resolve("definitions.json"), String.format(DEFINITIONS, "first_property"));
+        Response first = request("GET", "/render?spec=spec.json", null);
+        assertEquals(first.body, 200, first.status);
+        assertTrue(first.body.contains("first_property"));
+
+        write(root.resolve("definitions.json"), String.format(DEFINITIONS, "second_property"));
+        Response second = request("GET", "/render?spec=spec.json", null);
+        assertEquals(second.body, 200, second.status);
+        assertTrue(second.body.contains("second_property"));
+        assertFalse(second.body.contains("first_property"));
+
+        // the cached document isn't served once the referenced document is gone
+        Files.delete(root.resolve("definitions.json"));
+        Response third = request("GET", "/render?spec=spec.json", null);
+        assertFalse(third.body, third.body.contains("second_property"));
+    }
+
+    @Test
+    public void testSpecsOutsideOfRootAreRejected()
+            throws IOException
+    {
+        write(outside.resolve("spec.json"), String.format(SPEC, "./definitions.json"));
+        write(outside.resolve("definitions.json"), String.format(DEFINITIONS, "secret_property"));
+
+        assertEquals(400, request("GET", "/render?spec=" + encode(outside.resolve("spec.json").toString()), null).status);
+        assertEquals(400, request("GET", "/render?spec=" + encode("../" + outside.getFileName() + "/spec.json"), null).status);
+        assertEquals(400, request("GET", "/render?spec=" + encode("http://localhost:1/spec.json"), null).status);
+        assertEquals(400, request("GET", "/render?spec=missing.json", null).status);
+
+        write(root.resolve("spec.json"), String.format(SPEC, "../" + outside.getFileName() + "/definitions.json"));
+        Response response = request("GET", "/render?spec=spec.json", null);
+        assertEquals(400, response.status);
+        assertFalse(response.body.contains("secret_property"));
+    }
+
+    @Test
+    public void testReferencedDocumentsOutsideOfRootAreNotRead()
+            throws IOException
+    {
+        Response passwd = request("POST", "/render", String.format(SPEC, "file:///etc/passwd").getBytes(StandardCharsets.UTF_8));
+        assertFalse(passwd.body, passwd.body.contains("root:"));
+
+        // the file is only missing if it's read
+        String missing = outside.resolve("missing.json").toString();
+        Response response = request("POST", "/render", String.format(SPEC, missing).getBytes(StandardCharsets.UTF_8));
+        assertEquals(400, response.status);
+        assertTrue(response.body, response.body.contains("is not allowed"));
+
+        write(outside.resolve("definitions.json"), String.format(DEFINITIONS, "secret_property"));
+        response = request("POST", "/render", String.format(SPEC, outside.resolve("definitions.json")).getBytes(StandardCharsets.UTF_8));
+        assertEquals(400, response.status);
+        assertFalse(response.body.contains("secret_property"));
+    }
+
+    @Test
+    public void testRemoteRefsAreNotFetched()
+            throws IOException
+    {
+        AtomicInteger requests = new AtomicInteger();
+        HttpServer remote = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        remote.createContext("/", exchange -> {
+            requests.incrementAndGet();
+            byte[] body = String.format(DEFINITIONS, "remote_property").getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream output = exchange.getResponseBody()) {
+                output.write(body);
+            }
+        });
+        remote.start();
+        try {
+            String url = String.format("http://%s:%d/definitions.json", remote.getAddress().getHostString(), remote.getAddress().getPort());
+            Response response = request("POST", "/render", String.format(SPEC, url).getBytes(StandardCharsets.UTF_8));
+            assertEquals(400, response.status);
+            assertTrue(response.body, response.body.contains("is not allowed"));
+            assertEquals(0, requests.get());
+        }
+        finally {
+            remote.stop(0);
+        }
+    }
+
+    private Response request(String method, String path, byte[] body)
+            throws IOException
+    {
+        URL url = new URL("http", server.getAddress().getHostString(), server.getAddress().getPort(), path);
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setRequestMethod(method);
+        if (body != null) {
+            connection.setDoOutput(true);
+            try (OutputStream output = connection.getOutputStream()) {
+                output.write(body);
+            }
+        }
+        int status = connection.getResponseCode();
+        try (InputStream input = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+            return new Response(status, new String(ByteStreams.toByteArray(input), StandardCharsets.UTF_8));
+        }
+    }
+
+    private static void write(Path path, String content)
+            throws IOException
+    {
+        Files.write(path, content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String encode(String value)
+            throws IOException
+    {
+        return URLEncoder.encode(value, "UTF-8");
+    }
+
+    private static class Response
+    {
+        private final int status;
+        private final String body;
+
+        private Response(int status, String body)
+        {
+            this.status = status;
+            this.body = body;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package org.rakam.client.spec;
+
+import com.google.common.io.Resources;
+import io.swagger.models.Swagger;
+import io.swagger.models.properties.RefProperty;
+import org.junit.Test;
+import org.rakam.client.builder.document.SlateDocumentGenerator;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TestExternalRefResolver
+{
+    @Test
+    public void testExternalRefs()
+            throws IOException
+    {
+        Path directory = Files.createTempDirectory("refs");
+        Path spec = directory.resolve("spec.json");
+        Path definitions = directory.resolve("definitions.json");
+        write(spec, "{\"swagger\":\"2.0\",\"info\":{\"title\":\"Items\",\"version\":\"1.0\"},"
+                + "\"paths\":{\"/items\":{\"get\":{\"parameters\":[],"
+                + "\"responses\":{\"200\":{\"description\":\"the item\",\"schema\":{\"$ref\":\"./definitions.json#/Item\"}}}}}}}");
+        write(definitions, "{\"Item\":{\"type\":\"object\",\"properties\":{\"name\":{\"type\":\"string\"}}}}");
+
+        Map<String, String> documents = new TreeMap<>();
+        Swagger swagger = SlateDocumentGenerator.readSwagger(spec.toString(), null, documents);
+
+        assertTrue(swagger.getDefinitions().get("Item").getProperties().containsKey("name"));
+        RefProperty schema = (RefProperty) swagger.getPath("/items").getGet().getResponses().get("200").getSchema();
+        assertEquals("Item", schema.getSimpleRef());
+        assertEquals(documents.toString(), 1, documents.size());
+        assertTrue(documents.containsKey(definitions.toRealPath().toString()));
+    }
+
+    @Test
+    public void testSpecWithoutExternalRefs()
+            throws IOException, URISyntaxException
+    {
+        Map<String, String> documents = new TreeMap<>();
+        String spec = new File(Resources.getResource("rakam-example-spec.json").toURI()).getPath();
+        Swagger swagger = SlateDocumentGenerator.readSwagger(spec, null, documents);
+
+        assertTrue(documents.isEmpty());
+        assertTrue(swagger.getDefinitions().containsKey("QueryResult"));
+    }
+
+    private static void write(Path path, String content)
+            throws IOException
+    {
+        Files.write(path, content.getBytes(StandardCharsets.UTF_8));
+    }
+}
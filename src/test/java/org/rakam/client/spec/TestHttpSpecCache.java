@@ -0,0 +1,168 @@
+package org.rakam.client.spec;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Resources;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.CacheResponse;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ResponseCache;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+public class TestHttpSpecCache
+{
+    private HttpServer server;
+    private File directory;
+    private volatile String content;
+    private volatile String etag;
+    private final List<String> conditions = new ArrayList<>();
+    private final List<Integer> statuses = new ArrayList<>();
+
+    @Before
+    public void setUp()
+            throws IOException
+    {
+        directory = Files.createTempDirectory("http-spec-cache").toFile();
+        content = "{\"swagger\":\"2.0\"}";
+        etag = "\"v1\"";
+
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/spec.json", exchange -> {
+            String condition = exchange.getRequestHeaders().getFirst("If-None-Match");
+            synchronized (conditions) {
+                conditions.add(condition);
+            }
+            int status = etag.equals(condition) ? 304 : 200;
+            synchronized (statuses) {
+                statuses.add(status);
+            }
+            exchange.getResponseHeaders().set("ETag", etag);
+            if (status == 304) {
+                exchange.sendResponseHeaders(304, -1);
+            }
+            else {
+                byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(200, bytes.length);
+                try (OutputStream output = exchange.getResponseBody()) {
+                    output.write(bytes);
+                }
+            }
+            exchange.close();
+        });
+        server.createContext("/missing.json", exchange -> {
+            exchange.sendResponseHeaders(404, -1);
+            exchange.close();
+        });
+        server.start();
+    }
+
+    @After
+    public void tearDown()
+    {
+        server.stop(0);
+    }
+
+    @Test
+    public void testCacheMiss()
+            throws IOException
+    {
+        HttpSpecCache cache = new HttpSpecCache(directory, false);
+        assertEquals(content, get(cache, "/spec.json"));
+        assertEquals(1, conditions.size());
+        assertNull(conditions.get(0));
+        assertEquals(200, (int) statuses.get(0));
+
+        // the errors are left to the caller
+        assertNull(cache.get(uri("/missing.json"), "GET", ImmutableMap.of()));
+    }
+
+    @Test
+    public void testRevalidation()
+            throws IOException
+    {
+        HttpSpecCache cache = new HttpSpecCache(directory, false);
+        String original = content;
+        assertEquals(original, get(cache, "/spec.json"));
+
+        assertEquals(original, get(cache, "/spec.json"));
+        assertEquals("\"v1\"", conditions.get(1));
+        assertEquals(304, (int) statuses.get(1));
+
+        content = "{\"swagger\":\"2.0\",\"host\":\"changed\"}";
+        etag = "\"v2\"";
+        assertEquals(content, get(cache, "/spec.json"));
+        assertEquals("\"v1\"", conditions.get(2));
+        assertEquals(200, (int) statuses.get(2));
+
+        // the cached copy is used when the server can't be reached
+        server.stop(0);
+        assertEquals(content, get(cache, "/spec.json"));
+    }
+
+    @Test
+    public void testOffline()
+            throws IOException
+    {
+        assertEquals(content, get(new HttpSpecCache(directory, false), "/spec.json"));
+        String cached = content;
+        content = "{\"swagger\":\"2.0\",\"host\":\"changed\"}";
+        etag = "\"v2\"";
+
+        HttpSpecCache offline = new HttpSpecCache(directory, true);
+        assertEquals(cached, get(offline, "/spec.json"));
+        assertEquals(1, conditions.size());
+
+        try {
+            offline.get(uri("/missing.json"), "GET", ImmutableMap.of());
+            fail("expected an IOException for a document that is not cached");
+        }
+        catch (IOException e) {
+            assertEquals(1, conditions.size());
+        }
+    }
+
+    @Test
+    public void testInstalled()
+            throws IOException
+    {
+        ResponseCache previous = ResponseCache.getDefault();
+        try {
+            new HttpSpecCache(directory, false).install();
+            assertEquals(content, Resources.toString(uri("/spec.json").toURL(), StandardCharsets.UTF_8));
+            assertEquals(content, Resources.toString(uri("/spec.json").toURL(), StandardCharsets.UTF_8));
+            assertEquals(2, statuses.size());
+            assertEquals(304, (int) statuses.get(1));
+        }
+        finally {
+            ResponseCache.setDefault(previous);
+        }
+    }
+
+    private String get(HttpSpecCache cache, String path)
+            throws IOException
+    {
+        CacheResponse response = cache.get(uri(path), "GET", ImmutableMap.of());
+        return new String(ByteStreams.toByteArray(response.getBody()), StandardCharsets.UTF_8);
+    }
+
+    private URI uri(String path)
+    {
+        return URI.create("http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + path);
+    }
+}
@@ -0,0 +1,78 @@
+package org.rakam.client.spec;
+
+import com.google.common.collect.ImmutableList;
+import io.swagger.codegen.config.CodegenConfigurator;
+import io.swagger.models.Operation;
+import io.swagger.models.Swagger;
+import io.swagger.models.parameters.QueryParameter;
+import org.junit.Test;
+import org.rakam.client.builder.document.SlateDocumentGenerator;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class TestLazySwaggerLoader
+{
+    // the path level parameter is added to the operations of both tags by the code generation
+    private static final String SPEC = "{\"swagger\":\"2.0\",\"info\":{\"title\":\"Items\",\"version\":\"1.0\"},"
+            + "\"tags\":[{\"name\":\"items\"},{\"name\":\"admin\"}],"
+            + "\"paths\":{\"/items/{id}\":{\"parameters\":[{\"name\":\"id\",\"in\":\"path\",\"required\":true,\"type\":\"string\"}],"
+            + "\"get\":{\"tags\":[\"items\"],\"summary\":\"Get item\",\"operationId\":\"getItem\",\"parameters\":[],"
+            + "\"responses\":{\"200\":{\"description\":\"the item\",\"schema\":{\"$ref\":\"#/definitions/Item\"}}}},"
+            + "\"delete\":{\"tags\":[\"admin\"],\"summary\":\"Delete item\",\"operationId\":\"deleteItem\",\"parameters\":[],"
+            + "\"responses\":{\"200\":{\"description\":\"the item\",\"schema\":{\"$ref\":\"#/definitions/Item\"}}}}},"
+            + "\"/status\":{\"get\":{\"tags\":[\"admin\"],\"summary\":\"Get status\",\"operationId\":\"getStatus\",\"parameters\":[],"
+            + "\"responses\":{\"200\":{\"description\":\"the status\",\"schema\":{\"type\":\"string\"}}}}}},"
+            + "\"definitions\":{\"Item\":{\"type\":\"object\",\"properties\":{\"name\":{\"type\":\"string\"}}}}}";
+
+    @Test
+    public void testHeldPathsKeepTheirChanges()
+            throws IOException
+    {
+        Swagger swagger = LazySwaggerLoader.read(write(SPEC).toString(), null);
+        assertTrue(LazySwaggerLoader.isLazy(swagger.getPaths()));
+
+        ImmutableList<String> keys = ImmutableList.of("/items/{id}");
+        LazySwaggerLoader.hold(swagger.getPaths(), keys);
+        Operation operation = swagger.getPaths().get("/items/{id}").getGet();
+        operation.addParameter(new QueryParameter().name("limit"));
+
+        LazySwaggerLoader.evict(swagger.getPaths());
+        assertSame(operation, swagger.getPaths().get("/items/{id}").getGet());
+        assertEquals(1, operation.getParameters().size());
+
+        LazySwaggerLoader.release(swagger.getPaths(), keys);
+        LazySwaggerLoader.evict(swagger.getPaths());
+        Operation parsed = swagger.getPaths().get("/items/{id}").getGet();
+        assertNotSame(operation, parsed);
+        assertEquals(0, parsed.getParameters().size());
+    }
+
+    @Test
+    public void testLazyRenderMatchesEagerRender()
+            throws IOException
+    {
+        String spec = write(SPEC).toString();
+        CodegenConfigurator configurator = new CodegenConfigurator();
+        configurator.setLang("java");
+        SlateDocumentGenerator generator = new SlateDocumentGenerator(ImmutableList.of(configurator));
+
+        String expected = generator.render(SlateDocumentGenerator.readSwagger(spec, null)).toString();
+        assertEquals(expected, generator.render(LazySwaggerLoader.read(spec, null)).toString());
+    }
+
+    private static Path write(String content)
+            throws IOException
+    {
+        Path spec = Files.createTempDirectory("lazy").resolve("spec.json");
+        Files.write(spec, content.getBytes(StandardCharsets.UTF_8));
+        return spec;
+    }
+}
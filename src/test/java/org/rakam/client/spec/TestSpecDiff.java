@@ -0,0 +1,51 @@
+package org.rakam.client.spec;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import io.swagger.models.Swagger;
+import io.swagger.parser.SwaggerParser;
+import org.junit.Test;
+import org.rakam.client.builder.document.SlateDocumentGenerator.OperationIdentifier;
+
+import static java.lang.String.format;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TestSpecDiff
+{
+    private static final String SPEC = "{\"swagger\":\"2.0\",\"info\":{\"title\":\"Pets\",\"version\":\"1.0\"},\"tags\":[{\"name\":\"pets\"}],"
+            + "\"paths\":{\"/pets/{id}\":{%s\"parameters\":[{\"name\":\"id\",\"in\":\"path\",\"required\":true,\"type\":\"%s\"}],"
+            + "\"get\":{\"tags\":[\"pets\"],\"operationId\":\"getPet\",\"parameters\":[],"
+            + "\"responses\":{\"200\":{\"description\":\"the pet\",\"schema\":{\"$ref\":\"#/definitions/Pet\"}}}}}},"
+            + "\"definitions\":{\"Pet\":{\"type\":\"object\",\"properties\":{\"owner\":{\"$ref\":\"#/definitions/Owner\"}}},"
+            + "\"Owner\":{\"type\":\"object\",\"properties\":{\"pets\":{\"type\":\"array\",\"items\":{\"$ref\":\"#/definitions/Pet\"}},"
+            + "\"name\":{\"type\":\"%s\"}}}}}";
+
+    @Test
+    public void testPathLevelChangesModifyTheOperations()
+    {
+        Swagger swagger = spec("", "string", "string");
+        assertTrue(SpecDiff.compare(swagger, spec("", "string", "string")).isEmpty());
+
+        OperationIdentifier getPet = new OperationIdentifier("/pets/{id}", "GET");
+        SpecDiff parameter = SpecDiff.compare(swagger, spec("", "integer", "string"));
+        assertEquals(ImmutableList.of(getPet), parameter.getModifiedOperations());
+        assertTrue(parameter.getModifiedDefinitions().isEmpty());
+
+        SpecDiff extension = SpecDiff.compare(swagger, spec("\"x-internal\":true,", "string", "string"));
+        assertEquals(ImmutableList.of(getPet), extension.getModifiedOperations());
+    }
+
+    @Test
+    public void testCyclicDefinitionChangesModifyTheWholeCycle()
+    {
+        SpecDiff diff = SpecDiff.compare(spec("", "string", "string"), spec("", "string", "integer"));
+        assertEquals(ImmutableSet.of("Owner", "Pet"), diff.getModifiedDefinitions());
+        assertEquals(ImmutableList.of(new OperationIdentifier("/pets/{id}", "GET")), diff.getModifiedOperations());
+    }
+
+    private static Swagger spec(String extensions, String parameterType, String nameType)
+    {
+        return new SwaggerParser().parse(format(SPEC, extensions, parameterType, nameType));
+    }
+}
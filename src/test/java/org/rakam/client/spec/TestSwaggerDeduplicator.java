@@ -0,0 +1,108 @@
+package org.rakam.client.spec;
+
+import io.swagger.models.Swagger;
+import io.swagger.models.parameters.QueryParameter;
+import io.swagger.parser.SwaggerParser;
+import org.junit.Test;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import java.lang.management.ManagementFactory;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static java.lang.String.format;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+public class TestSwaggerDeduplicator
+{
+    private static final int PATHS = 500;
+    private static final int PARAMETERS = 4;
+    private static final Pattern STRING_ROW = Pattern.compile("^\\s*\\d+:\\s+(\\d+)\\s+\\d+\\s+java\\.lang\\.String(\\s.*)?$", Pattern.MULTILINE);
+
+    @Test
+    public void testRepeatedValuesAreShared()
+    {
+        Swagger swagger = SwaggerDeduplicator.deduplicate(new SwaggerParser().parse(spec()));
+        QueryParameter first = (QueryParameter) swagger.getPath("/items/0").getGet().getParameters().get(0);
+        QueryParameter last = (QueryParameter) swagger.getPath(format("/items/%d", PATHS - 1)).getGet().getParameters().get(PARAMETERS - 1);
+        assertSame(first.getDescription(), last.getDescription());
+        assertSame(first.getType(), last.getType());
+        assertSame(first.getEnum(), last.getEnum());
+        try {
+            first.getEnum().add("other");
+            throw new AssertionError("the shared enum list must be immutable");
+        }
+        catch (UnsupportedOperationException expected) {
+        }
+    }
+
+    @Test
+    public void testHeapHistogram()
+            throws JMException
+    {
+        assumeTrue(liveStrings() >= 0);
+        String spec = spec();
+
+        long before = liveStrings();
+        Swagger parsed = new SwaggerParser().parse(spec);
+        long parsedStrings = liveStrings() - before;
+
+        before = liveStrings();
+        Swagger deduplicated = SwaggerDeduplicator.deduplicate(new SwaggerParser().parse(spec));
+        long deduplicatedStrings = liveStrings() - before;
+
+        assertTrue(format("the deduplicated spec keeps %d strings, the parsed one %d", deduplicatedStrings, parsedStrings),
+                deduplicatedStrings * 4 < parsedStrings);
+        // both are kept reachable until the histograms are taken
+        assertEquals(parsed.getPaths().size(), deduplicated.getPaths().size());
+    }
+
+    /**
+     * Returns the number of live strings in the heap, or -1 if the histogram is not available. Taking the histogram
+     * runs a full GC first.
+     */
+    private static long liveStrings()
+            throws JMException
+    {
+        String histogram;
+        try {
+            histogram = (String) ManagementFactory.getPlatformMBeanServer().invoke(
+                    new ObjectName("com.sun.management:type=DiagnosticCommand"),
+                    "gcClassHistogram",
+                    new Object[] {null},
+                    new String[] {String[].class.getName()});
+        }
+        catch (JMException | UnsupportedOperationException e) {
+            return -1;
+        }
+        Matcher matcher = STRING_ROW.matcher(histogram);
+        return matcher.find() ? Long.parseLong(matcher.group(1)) : -1;
+    }
+
+    private static String spec()
+    {
+        StringBuilder paths = new StringBuilder();
+        for (int i = 0; i < PATHS; i++) {
+            if (i > 0) {
+                paths.append(',');
+            }
+            paths.append(format("\"/items/%d\":{\"get\":{\"tags\":[\"items\"],\"summary\":\"Get items\",\"parameters\":[", i));
+            for (int j = 0; j < PARAMETERS; j++) {
+                if (j > 0) {
+                    paths.append(',');
+                }
+                paths.append(format("{\"name\":\"filter%d\",\"in\":\"query\",\"type\":\"string\",", j))
+                        .append("\"description\":\"The filter that is applied to the items before they are returned\",")
+                        .append("\"enum\":[\"red\",\"green\",\"blue\",\"cyan\",\"magenta\",\"yellow\",\"black\",\"white\"]}");
+            }
+            paths.append("],\"responses\":{\"200\":{\"description\":\"the items\",\"schema\":{\"type\":\"string\"}}}}}");
+        }
+        return "{\"swagger\":\"2.0\",\"info\":{\"title\":\"Items\",\"version\":\"1.0\"},\"tags\":[{\"name\":\"items\"}],"
+                + "\"paths\":{" + paths + "}}";
+    }
+}
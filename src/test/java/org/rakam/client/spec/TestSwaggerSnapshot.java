@@ -0,0 +1,92 @@
+package org.rakam.client.spec;
+
+import com.sun.net.httpserver.HttpServer;
+import io.swagger.models.Swagger;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ResponseCache;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TestSwaggerSnapshot
+{
+    private static final String SPEC = "{\"swagger\":\"2.0\",\"info\":{\"title\":\"Items\",\"version\":\"1.0\"},\"tags\":[{\"name\":\"items\"}],"
+            + "\"paths\":{\"/items\":{\"get\":{\"tags\":[\"items\"],\"operationId\":\"getItem\",\"parameters\":[],"
+            + "\"responses\":{\"200\":{\"description\":\"the item\",\"schema\":{\"$ref\":\"./definitions.json#/Item\"}}}}}}}";
+    private static final String REMOTE_SPEC = "{\"swagger\":\"2.0\",\"info\":{\"title\":\"Items\",\"version\":\"%s\"},\"paths\":{}}";
+    private static final String DEFINITIONS = "{\"Item\":{\"type\":\"object\",\"properties\":{\"%s\":{\"type\":\"string\"}}}}";
+
+    @Test
+    public void testReferencedDocumentChangesInvalidateSnapshot()
+            throws IOException
+    {
+        Path directory = Files.createTempDirectory("snapshot");
+        Path spec = directory.resolve("spec.json");
+        Path definitions = directory.resolve("definitions.json");
+        File snapshot = directory.resolve("spec.snapshot").toFile();
+        write(spec, SPEC);
+        write(definitions, String.format(DEFINITIONS, "first"));
+
+        assertEquals("first", property(SwaggerSnapshot.read(spec.toString(), null, snapshot)));
+        assertTrue(snapshot.isFile());
+        assertEquals("first", property(SwaggerSnapshot.read(spec.toString(), null, snapshot)));
+
+        // same size, the modification time is moved forward in case the file system has a coarse resolution
+        write(definitions, String.format(DEFINITIONS, "other"));
+        definitions.toFile().setLastModified(definitions.toFile().lastModified() + 10_000);
+        assertEquals("other", property(SwaggerSnapshot.read(spec.toString(), null, snapshot)));
+    }
+
+    @Test
+    public void testSameSizeRemoteEditInvalidatesSnapshot()
+            throws IOException
+    {
+        Path directory = Files.createTempDirectory("snapshot");
+        File snapshot = directory.resolve("spec.snapshot").toFile();
+        String[] version = {"v1"};
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/spec.json", exchange -> {
+            byte[] bytes = String.format(REMOTE_SPEC, version[0]).getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream output = exchange.getResponseBody()) {
+                output.write(bytes);
+            }
+        });
+        server.start();
+        ResponseCache previous = ResponseCache.getDefault();
+        try {
+            new HttpSpecCache(directory.resolve("http").toFile(), false).install();
+            String spec = "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + "/spec.json";
+
+            assertEquals("v1", SwaggerSnapshot.read(spec, null, snapshot).getInfo().getVersion());
+            assertTrue(snapshot.isFile());
+
+            version[0] = "v2";
+            assertEquals("v2", SwaggerSnapshot.read(spec, null, snapshot).getInfo().getVersion());
+        }
+        finally {
+            ResponseCache.setDefault(previous);
+            server.stop(0);
+        }
+    }
+
+    private static String property(Swagger swagger)
+    {
+        return swagger.getDefinitions().get("Item").getProperties().keySet().iterator().next();
+    }
+
+    private static void write(Path path, String content)
+            throws IOException
+    {
+        Files.write(path, content.getBytes(StandardCharsets.UTF_8));
+    }
+}